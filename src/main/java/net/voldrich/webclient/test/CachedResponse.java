@@ -0,0 +1,104 @@
+package net.voldrich.webclient.test;
+
+import org.springframework.core.io.buffer.DataBufferFactory;
+import org.springframework.core.io.buffer.DefaultDataBufferFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Fully read response (status, headers and raw body) together with its validators.
+ */
+public class CachedResponse {
+
+    private static final DataBufferFactory BUFFER_FACTORY = new DefaultDataBufferFactory();
+
+    private final int status;
+
+    private final HttpHeaders headers;
+
+    private final byte[] body;
+
+    private final boolean restored;
+
+    public CachedResponse(int status, HttpHeaders headers, byte[] body) {
+        this(status, headers, body, false);
+    }
+
+    /**
+     * @param restored true when the response was stored by a previous run and was not revalidated yet
+     */
+    public CachedResponse(int status, HttpHeaders headers, byte[] body, boolean restored) {
+        this.status = status;
+        this.headers = HttpHeaders.readOnlyHttpHeaders(headers);
+        this.body = body;
+        this.restored = restored;
+    }
+
+    public int getStatus() {
+        return status;
+    }
+
+    public HttpHeaders getHeaders() {
+        return headers;
+    }
+
+    public byte[] getBody() {
+        return body;
+    }
+
+    public boolean isRestored() {
+        return restored;
+    }
+
+    public String getETag() {
+        return headers.getETag();
+    }
+
+    public String getLastModified() {
+        return headers.getFirst(HttpHeaders.LAST_MODIFIED);
+    }
+
+    public boolean hasValidators() {
+        return getETag() != null || getLastModified() != null;
+    }
+
+    /**
+     * Adds If-None-Match / If-Modified-Since headers so the server can answer with 304 Not Modified.
+     */
+    public void applyValidators(HttpHeaders requestHeaders) {
+        if (getETag() != null) {
+            requestHeaders.set(HttpHeaders.IF_NONE_MATCH, getETag());
+        }
+        if (getLastModified() != null) {
+            requestHeaders.set(HttpHeaders.IF_MODIFIED_SINCE, getLastModified());
+        }
+    }
+
+    /**
+     * Returns copy of this response with headers refreshed from 304 Not Modified response
+     * (rate limit headers, new validators). Body related headers are kept from the stored response.
+     */
+    public CachedResponse refresh(HttpHeaders notModifiedHeaders) {
+        HttpHeaders merged = new HttpHeaders();
+        merged.putAll(headers);
+        notModifiedHeaders.forEach((name, values) -> {
+            if (!HttpHeaders.CONTENT_LENGTH.equalsIgnoreCase(name)
+                    && !HttpHeaders.CONTENT_TYPE.equalsIgnoreCase(name)
+                    && !HttpHeaders.TRANSFER_ENCODING.equalsIgnoreCase(name)) {
+                merged.put(name, values);
+            }
+        });
+        return new CachedResponse(status, merged, body);
+    }
+
+    public ClientResponse toClientResponse(ExchangeStrategies strategies) {
+        return ClientResponse.create(HttpStatus.valueOf(status), strategies)
+                .headers(httpHeaders -> httpHeaders.addAll(headers))
+                .body(Flux.defer(() -> Flux.just(BUFFER_FACTORY.wrap(body))))
+                .build();
+    }
+}
@@ -0,0 +1,173 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import org.springframework.web.util.UriUtils;
+
+/**
+ * URI template parsed once into literal parts and variable slots. Expansion only concatenates literals
+ * with encoded values, variable values are strictly encoded as by {@link UriUtils#encode(String, java.nio.charset.Charset)}.
+ */
+public class CompiledUriTemplate {
+
+    private final String template;
+
+    private final String[] literals;
+
+    private final String[] variables;
+
+    private final int literalsLength;
+
+    private CompiledUriTemplate(String template, List<String> literals, List<String> variables) {
+        this.template = template;
+        this.literals = literals.toArray(new String[0]);
+        this.variables = variables.toArray(new String[0]);
+        int length = 0;
+        for (String literal : this.literals) {
+            length += literal.length();
+        }
+        this.literalsLength = length;
+    }
+
+    /**
+     * Compiles template like {@code /users/{name}} prefixed by base URL.
+     */
+    public static CompiledUriTemplate compile(String baseUrl, String template) {
+        List<String> literals = new ArrayList<>();
+        List<String> variables = new ArrayList<>();
+        StringBuilder literal = new StringBuilder(baseUrl);
+        int position = 0;
+        while (position < template.length()) {
+            int start = template.indexOf('{', position);
+            if (start < 0) {
+                break;
+            }
+            int end = template.indexOf('}', start);
+            if (end < 0) {
+                throw new IllegalArgumentException("Unclosed variable in template " + template);
+            }
+            literal.append(template, position, start);
+            literals.add(literal.toString());
+            literal.setLength(0);
+            variables.add(template.substring(start + 1, end));
+            position = end + 1;
+        }
+        literal.append(template, position, template.length());
+        literals.add(literal.toString());
+        return new CompiledUriTemplate(baseUrl + template, literals, variables);
+    }
+
+    /**
+     * Compiles page template from github page link by replacing value of its page query parameter,
+     * e.g. {@code https://api.github.com/repositories/1/contributors?per_page=10&page={page}}.
+     *
+     * @throws IllegalArgumentException when link has no page parameter
+     */
+    public static CompiledUriTemplate ofPageLink(String pageLink) {
+        int valueStart = findPageValue(pageLink);
+        if (valueStart < 0) {
+            throw new IllegalArgumentException("Failed to parse page number of link " + pageLink);
+        }
+        int valueEnd = valueStart;
+        while (valueEnd < pageLink.length() && Character.isDigit(pageLink.charAt(valueEnd))) {
+            valueEnd++;
+        }
+        List<String> literals = new ArrayList<>(2);
+        literals.add(pageLink.substring(0, valueStart));
+        literals.add(pageLink.substring(valueEnd));
+        return new CompiledUriTemplate(literals.get(0) + "{page}" + literals.get(1), literals,
+                Collections.singletonList("page"));
+    }
+
+    /**
+     * @return page number of github page link, -1 when link has no page parameter
+     */
+    public static int getPageNumber(String pageLink) {
+        int valueStart = findPageValue(pageLink);
+        if (valueStart < 0) {
+            return -1;
+        }
+        int value = 0;
+        for (int i = valueStart; i < pageLink.length() && Character.isDigit(pageLink.charAt(i)); i++) {
+            value = value * 10 + pageLink.charAt(i) - '0';
+        }
+        return value;
+    }
+
+    private static int findPageValue(String pageLink) {
+        int query = pageLink.indexOf('?');
+        int position = query;
+        while (position >= 0) {
+            if (pageLink.startsWith("page=", position + 1)) {
+                return position + 6;
+            }
+            position = pageLink.indexOf('&', position + 1);
+        }
+        return -1;
+    }
+
+    /**
+     * Matches a value against the template, every variable matches a non empty text without slash.
+     */
+    public boolean matches(String value) {
+        if (!value.startsWith(literals[0])) {
+            return false;
+        }
+        int position = literals[0].length();
+        for (int i = 0; i < variables.length; i++) {
+            String literal = literals[i + 1];
+            int end = position;
+            while (end < value.length() && value.charAt(end) != '/'
+                    && (literal.isEmpty() || !value.startsWith(literal, end))) {
+                end++;
+            }
+            if (end == position || !value.startsWith(literal, end)) {
+                return false;
+            }
+            position = end + literal.length();
+        }
+        return position == value.length();
+    }
+
+    public URI expand(Object... values) {
+        if (values.length != variables.length) {
+            throw new IllegalArgumentException("Template " + template + " expects " + variables.length
+                    + " values, got " + values.length);
+        }
+        StringBuilder uri = new StringBuilder(literalsLength + values.length * 16);
+        uri.append(literals[0]);
+        for (int i = 0; i < values.length; i++) {
+            appendEncoded(uri, String.valueOf(values[i]));
+            uri.append(literals[i + 1]);
+        }
+        return URI.create(uri.toString());
+    }
+
+    private static void appendEncoded(StringBuilder uri, String value) {
+        for (int i = 0; i < value.length(); i++) {
+            if (!isUnreserved(value.charAt(i))) {
+                uri.append(UriUtils.encode(value, StandardCharsets.UTF_8));
+                return;
+            }
+        }
+        uri.append(value);
+    }
+
+    private static boolean isUnreserved(char c) {
+        return (c >= 'a' && c <= 'z') || (c >= 'A' && c <= 'Z') || (c >= '0' && c <= '9')
+                || c == '-' || c == '.' || c == '_' || c == '~';
+    }
+
+    public String getTemplate() {
+        return template;
+    }
+
+    @Override
+    public String toString() {
+        return template;
+    }
+}
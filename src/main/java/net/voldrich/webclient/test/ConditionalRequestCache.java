@@ -0,0 +1,152 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ClientResponse;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+import org.springframework.web.reactive.function.client.ExchangeFunction;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Scheduler;
+import reactor.core.scheduler.Schedulers;
+
+/**
+ * Conditional request layer. Stores ETag / Last-Modified validators of successful GET responses
+ * together with the body and replays them as If-None-Match / If-Modified-Since. Server answers
+ * 304 Not Modified for unchanged resources, which is served from the stored body.
+ * Github does not count 304 responses against the rate limit.
+ * <p>
+ * Responses restored from a persistent store are served right away and revalidated in background.
+ * The cache is placed before the token pool, so a restored response does not take budget of any token.
+ * <p>
+ * Responses are keyed by URI only. The client requests every resource with the same Accept header and the
+ * resources are public, so any token of the pool gets the same representation and revalidates the shared
+ * entry.
+ * Blocking stores are accessed on the bounded elastic scheduler, never on the event loop. Failure to store
+ * a response is logged and does not fail the request.
+ */
+public class ConditionalRequestCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(ConditionalRequestCache.class);
+
+    private final ResponseStore store;
+
+    private final ExchangeStrategies strategies;
+
+    private final Scheduler storeScheduler;
+
+    private final Set<URI> revalidating = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder notModifiedCount = new LongAdder();
+
+    private final LongAdder restoredCount = new LongAdder();
+
+    public ConditionalRequestCache(ResponseStore store, ExchangeStrategies strategies) {
+        this.store = store;
+        this.strategies = strategies;
+        this.storeScheduler = store.isBlocking() ? Schedulers.boundedElastic() : Schedulers.immediate();
+    }
+
+    public ExchangeFilterFunction filter() {
+        return (clientRequest, exchangeFunction) -> {
+            if (clientRequest.method() != HttpMethod.GET) {
+                return exchangeFunction.exchange(clientRequest);
+            }
+            URI uri = clientRequest.url();
+            return load(uri)
+                    .flatMap(cached -> exchangeCached(uri, cached, clientRequest, exchangeFunction))
+                    .switchIfEmpty(Mono.defer(() -> exchangeFunction.exchange(clientRequest)
+                            .flatMap(response -> handleResponse(uri, null, response))));
+        };
+    }
+
+    private Mono<ClientResponse> exchangeCached(URI uri, CachedResponse cached, ClientRequest clientRequest,
+                                                ExchangeFunction exchangeFunction) {
+        ClientRequest request = ClientRequest.from(clientRequest)
+                .headers(cached::applyValidators)
+                .build();
+        if (cached.isRestored()) {
+            restoredCount.increment();
+            revalidateInBackground(uri, cached, request, exchangeFunction);
+            return Mono.fromSupplier(() -> cached.toClientResponse(strategies));
+        }
+        return exchangeFunction.exchange(request)
+                .flatMap(response -> handleResponse(uri, cached, response));
+    }
+
+    private Mono<CachedResponse> load(URI uri) {
+        return Mono.fromCallable(() -> store.get(uri))
+                .subscribeOn(storeScheduler);
+    }
+
+    private Mono<Void> save(URI uri, CachedResponse response) {
+        return Mono.<Void>fromRunnable(() -> store.put(uri, response))
+                .subscribeOn(storeScheduler)
+                .onErrorResume(throwable -> {
+                    logger.warn("Failed to store response of {} {}", uri, throwable.toString());
+                    return Mono.empty();
+                });
+    }
+
+    private void revalidateInBackground(URI uri, CachedResponse cached, ClientRequest request,
+                                        ExchangeFunction exchangeFunction) {
+        if (!revalidating.add(uri)) {
+            return;
+        }
+        exchangeFunction.exchange(request)
+                .flatMap(response -> handleResponse(uri, cached, response))
+                .flatMap(ClientResponse::releaseBody)
+                .doFinally(signalType -> revalidating.remove(uri))
+                .subscribe(
+                        aVoid -> { },
+                        throwable -> logger.warn("Revalidation of {} failed {}", uri, throwable.toString()));
+    }
+
+    private Mono<ClientResponse> handleResponse(URI uri, CachedResponse cached, ClientResponse response) {
+        if (cached != null && response.statusCode() == HttpStatus.NOT_MODIFIED) {
+            notModifiedCount.increment();
+            logger.debug("Not modified {}, serving stored body", uri);
+            CachedResponse refreshed = cached.refresh(response.headers().asHttpHeaders());
+            return response.releaseBody()
+                    .then(save(uri, refreshed))
+                    .then(Mono.fromSupplier(() -> refreshed.toClientResponse(strategies)));
+        }
+        if (response.statusCode().is2xxSuccessful()
+                && (response.headers().asHttpHeaders().getETag() != null
+                || response.headers().asHttpHeaders().getLastModified() != -1)) {
+            return response.bodyToMono(byte[].class)
+                    .defaultIfEmpty(new byte[0])
+                    .flatMap(body -> {
+                        CachedResponse stored = new CachedResponse(response.rawStatusCode(),
+                                response.headers().asHttpHeaders(), body);
+                        return save(uri, stored)
+                                .then(Mono.fromSupplier(() -> stored.toClientResponse(strategies)));
+                    });
+        }
+        return Mono.just(response);
+    }
+
+    public long getNotModifiedCount() {
+        return notModifiedCount.longValue();
+    }
+
+    /**
+     * Number of responses served from a previous run before being revalidated.
+     */
+    public long getRestoredCount() {
+        return restoredCount.longValue();
+    }
+
+    public long size() {
+        return store.size();
+    }
+}
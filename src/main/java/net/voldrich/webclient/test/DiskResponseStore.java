@@ -0,0 +1,358 @@
+package net.voldrich.webclient.test;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.URI;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.Map;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+
+import com.google.common.hash.HashFunction;
+import com.google.common.hash.Hashing;
+
+/**
+ * Persistent response store surviving restarts. Records are appended to a segment file, a memory mapped
+ * open addressing index maps URI hash to the record offset. Lookup compares the stored URI first, so
+ * headers and body are read only for a confirmed hit. Records written by a previous run are returned
+ * as {@link CachedResponse#isRestored() restored}. Rate limit headers are not persisted, a budget reported
+ * to a previous run would overwrite the live one when a restored response is served.
+ * <p>
+ * Replaced records are not reclaimed, delete the directory to start from scratch. A truncated or corrupted
+ * record, e.g. after a crash during write, is a cache miss and its index slot is dropped.
+ */
+public class DiskResponseStore implements ResponseStore, Closeable {
+
+    private static final Logger logger = LoggerFactory.getLogger(DiskResponseStore.class);
+
+    private static final String SEGMENT_FILE = "responses.seg";
+
+    private static final String INDEX_FILE = "responses.idx";
+
+    private static final int INDEX_MAGIC = 0x47484958;
+
+    private static final int RECORD_MAGIC = 0x47485245;
+
+    private static final int INDEX_HEADER_SIZE = 16;
+
+    private static final int SLOT_SIZE = 16;
+
+    private static final int INITIAL_CAPACITY = 1024;
+
+    private static final HashFunction HASH_FUNCTION = Hashing.murmur3_128();
+
+    private final FileChannel segment;
+
+    private final FileChannel indexChannel;
+
+    private final long restoredLength;
+
+    private MappedByteBuffer index;
+
+    private int capacity;
+
+    private int count;
+
+    public DiskResponseStore(Path directory) {
+        try {
+            Files.createDirectories(directory);
+            this.segment = FileChannel.open(directory.resolve(SEGMENT_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.indexChannel = FileChannel.open(directory.resolve(INDEX_FILE),
+                    StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            this.restoredLength = segment.size();
+            if (indexChannel.size() >= INDEX_HEADER_SIZE) {
+                mapIndex(indexChannel.map(FileChannel.MapMode.READ_WRITE, 0, INDEX_HEADER_SIZE).getInt(4));
+                if (index.getInt(0) != INDEX_MAGIC) {
+                    throw new IllegalStateException("Invalid response cache index in " + directory);
+                }
+                this.count = index.getInt(8);
+            } else {
+                mapIndex(INITIAL_CAPACITY);
+                index.putInt(0, INDEX_MAGIC);
+                index.putInt(4, capacity);
+                index.putInt(8, 0);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to open response cache in " + directory, e);
+        }
+    }
+
+    private void mapIndex(int newCapacity) throws IOException {
+        this.capacity = newCapacity;
+        this.index = indexChannel.map(FileChannel.MapMode.READ_WRITE, 0,
+                INDEX_HEADER_SIZE + (long) newCapacity * SLOT_SIZE);
+    }
+
+    @Override
+    public synchronized CachedResponse get(URI uri) {
+        String key = uri.toString();
+        long hash = hash(key);
+        int slot = findSlot(hash);
+        long offset = index.getLong(slotPosition(slot) + 8);
+        if (offset == 0) {
+            return null;
+        }
+        try {
+            return readRecord(offset - 1, key);
+        } catch (IOException e) {
+            logger.warn("Dropping unreadable response cache record of {} {}", uri, e.toString());
+            removeSlot(slot);
+            return null;
+        }
+    }
+
+    @Override
+    public synchronized void put(URI uri, CachedResponse response) {
+        String key = uri.toString();
+        long hash = hash(key);
+        try {
+            long offset = appendRecord(key, response);
+            int slot = findSlot(hash);
+            int position = slotPosition(slot);
+            if (index.getLong(position + 8) == 0) {
+                count++;
+                index.putInt(8, count);
+            }
+            index.putLong(position, hash);
+            index.putLong(position + 8, offset + 1);
+            if (count * 4L > capacity * 3L) {
+                grow();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to store response of " + uri, e);
+        }
+    }
+
+    @Override
+    public boolean isBlocking() {
+        return true;
+    }
+
+    @Override
+    public synchronized long size() {
+        return count;
+    }
+
+    @Override
+    public synchronized void close() throws IOException {
+        index.force();
+        segment.force(false);
+        segment.close();
+        indexChannel.close();
+    }
+
+    /**
+     * Linear probing, returns slot with given hash or first empty slot.
+     */
+    private int findSlot(long hash) {
+        int slot = (int) ((hash & Long.MAX_VALUE) % capacity);
+        while (true) {
+            int position = slotPosition(slot);
+            if (index.getLong(position + 8) == 0 || index.getLong(position) == hash) {
+                return slot;
+            }
+            slot = (slot + 1) % capacity;
+        }
+    }
+
+    /**
+     * Empties the slot and shifts following slots of the probe sequence back, so that no entry becomes
+     * unreachable.
+     */
+    private void removeSlot(int slot) {
+        int empty = slot;
+        int next = (slot + 1) % capacity;
+        while (index.getLong(slotPosition(next) + 8) != 0) {
+            long hash = index.getLong(slotPosition(next));
+            int home = (int) ((hash & Long.MAX_VALUE) % capacity);
+            boolean movable = empty <= next
+                    ? home <= empty || home > next
+                    : home <= empty && home > next;
+            if (movable) {
+                index.putLong(slotPosition(empty), hash);
+                index.putLong(slotPosition(empty) + 8, index.getLong(slotPosition(next) + 8));
+                empty = next;
+            }
+            next = (next + 1) % capacity;
+        }
+        index.putLong(slotPosition(empty), 0);
+        index.putLong(slotPosition(empty) + 8, 0);
+        count--;
+        index.putInt(8, count);
+    }
+
+    private void grow() throws IOException {
+        int oldCapacity = capacity;
+        long[] slots = new long[oldCapacity * 2];
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            slots[slot * 2] = index.getLong(slotPosition(slot));
+            slots[slot * 2 + 1] = index.getLong(slotPosition(slot) + 8);
+        }
+        mapIndex(oldCapacity * 2);
+        for (int slot = 0; slot < capacity; slot++) {
+            index.putLong(slotPosition(slot), 0);
+            index.putLong(slotPosition(slot) + 8, 0);
+        }
+        for (int slot = 0; slot < oldCapacity; slot++) {
+            if (slots[slot * 2 + 1] != 0) {
+                int position = slotPosition(findSlot(slots[slot * 2]));
+                index.putLong(position, slots[slot * 2]);
+                index.putLong(position + 8, slots[slot * 2 + 1]);
+            }
+        }
+        index.putInt(4, capacity);
+    }
+
+    private static int slotPosition(int slot) {
+        return INDEX_HEADER_SIZE + slot * SLOT_SIZE;
+    }
+
+    private static long hash(String key) {
+        return HASH_FUNCTION.hashString(key, StandardCharsets.UTF_8).asLong();
+    }
+
+    /*
+     * Record layout: magic, URI, status, header count, (name, value count, values)*, body.
+     * Strings and body are stored as int length followed by bytes.
+     */
+    private long appendRecord(String key, CachedResponse response) throws IOException {
+        RecordWriter writer = new RecordWriter();
+        writer.putInt(RECORD_MAGIC);
+        writer.putBytes(key.getBytes(StandardCharsets.UTF_8));
+        writer.putInt(response.getStatus());
+        int headerCount = 0;
+        for (String name : response.getHeaders().keySet()) {
+            if (!RateLimitStatus.isRateLimitHeader(name)) {
+                headerCount++;
+            }
+        }
+        writer.putInt(headerCount);
+        for (Map.Entry<String, List<String>> header : response.getHeaders().entrySet()) {
+            if (RateLimitStatus.isRateLimitHeader(header.getKey())) {
+                continue;
+            }
+            writer.putBytes(header.getKey().getBytes(StandardCharsets.UTF_8));
+            writer.putInt(header.getValue().size());
+            for (String value : header.getValue()) {
+                writer.putBytes(value.getBytes(StandardCharsets.UTF_8));
+            }
+        }
+        writer.putBytes(response.getBody());
+
+        long offset = segment.size();
+        ByteBuffer buffer = writer.toByteBuffer();
+        long position = offset;
+        while (buffer.hasRemaining()) {
+            position += segment.write(buffer, position);
+        }
+        return offset;
+    }
+
+    private CachedResponse readRecord(long offset, String expectedKey) throws IOException {
+        RecordReader reader = new RecordReader(offset);
+        if (reader.getInt() != RECORD_MAGIC) {
+            throw new IOException("Corrupted response cache record at " + offset);
+        }
+        if (!expectedKey.equals(reader.getString())) {
+            return null;
+        }
+        int status = reader.getInt();
+        int headerCount = reader.getInt();
+        HttpHeaders headers = new HttpHeaders();
+        for (int i = 0; i < headerCount; i++) {
+            String name = reader.getString();
+            int valueCount = reader.getInt();
+            for (int j = 0; j < valueCount; j++) {
+                String value = reader.getString();
+                // records written before rate limit headers were skipped
+                if (!RateLimitStatus.isRateLimitHeader(name)) {
+                    headers.add(name, value);
+                }
+            }
+        }
+        byte[] body = reader.getBytes();
+        return new CachedResponse(status, headers, body, offset < restoredLength);
+    }
+
+    private static class RecordWriter {
+
+        private ByteBuffer buffer = ByteBuffer.allocate(4096);
+
+        void putInt(int value) {
+            ensureCapacity(4);
+            buffer.putInt(value);
+        }
+
+        void putBytes(byte[] bytes) {
+            putInt(bytes.length);
+            ensureCapacity(bytes.length);
+            buffer.put(bytes);
+        }
+
+        private void ensureCapacity(int length) {
+            if (buffer.remaining() < length) {
+                ByteBuffer larger = ByteBuffer.allocate(Math.max(buffer.capacity() * 2, buffer.position() + length));
+                buffer.flip();
+                larger.put(buffer);
+                buffer = larger;
+            }
+        }
+
+        ByteBuffer toByteBuffer() {
+            buffer.flip();
+            return buffer;
+        }
+    }
+
+    private class RecordReader {
+
+        private final ByteBuffer intBuffer = ByteBuffer.allocate(4);
+
+        private long position;
+
+        RecordReader(long position) {
+            this.position = position;
+        }
+
+        int getInt() throws IOException {
+            intBuffer.clear();
+            readFully(intBuffer);
+            return intBuffer.getInt(0);
+        }
+
+        byte[] getBytes() throws IOException {
+            int length = getInt();
+            if (length < 0 || length > segment.size() - position) {
+                throw new IOException("Invalid length " + length + " in response cache segment at " + position);
+            }
+            byte[] bytes = new byte[length];
+            readFully(ByteBuffer.wrap(bytes));
+            return bytes;
+        }
+
+        String getString() throws IOException {
+            return new String(getBytes(), StandardCharsets.UTF_8);
+        }
+
+        private void readFully(ByteBuffer target) throws IOException {
+            while (target.hasRemaining()) {
+                int read = segment.read(target, position);
+                if (read < 0) {
+                    throw new IOException("Unexpected end of response cache segment at " + position);
+                }
+                position += read;
+            }
+        }
+    }
+}
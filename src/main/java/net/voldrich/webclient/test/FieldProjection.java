@@ -0,0 +1,65 @@
+package net.voldrich.webclient.test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.fasterxml.jackson.databind.BeanDescription;
+import com.fasterxml.jackson.databind.DeserializationConfig;
+import com.fasterxml.jackson.databind.PropertyName;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerBuilder;
+import com.fasterxml.jackson.databind.deser.BeanDeserializerModifier;
+import com.fasterxml.jackson.databind.deser.SettableBeanProperty;
+
+/**
+ * Decodes only declared JSON fields of projected DTO types. All other properties, including those which
+ * would end up in additional properties, are skipped by the parser without materializing their values.
+ * <p>
+ * In lean mode unknown properties of all types are skipped instead of being collected as additional properties.
+ */
+public class FieldProjection extends BeanDeserializerModifier {
+
+    private final Map<Class<?>, Set<String>> projections;
+
+    private final boolean lean;
+
+    /**
+     * @param projections JSON field names to decode per DTO type
+     * @param lean        drop unknown properties of all types
+     */
+    public FieldProjection(Map<Class<?>, Set<String>> projections, boolean lean) {
+        this.projections = Collections.unmodifiableMap(projections);
+        this.lean = lean;
+    }
+
+    @Override
+    public BeanDeserializerBuilder updateBuilder(DeserializationConfig config, BeanDescription beanDesc,
+                                                 BeanDeserializerBuilder builder) {
+        Set<String> fields = projections.get(beanDesc.getBeanClass());
+        if (fields == null) {
+            if (lean) {
+                builder.setAnySetter(null);
+                builder.setIgnoreUnknownProperties(true);
+            }
+            return builder;
+        }
+        List<String> skipped = new ArrayList<>();
+        Iterator<SettableBeanProperty> properties = builder.getProperties();
+        while (properties.hasNext()) {
+            String name = properties.next().getName();
+            if (!fields.contains(name)) {
+                skipped.add(name);
+            }
+        }
+        for (String name : skipped) {
+            builder.removeProperty(PropertyName.construct(name));
+            builder.addIgnorable(name);
+        }
+        builder.setAnySetter(null);
+        builder.setIgnoreUnknownProperties(true);
+        return builder;
+    }
+}
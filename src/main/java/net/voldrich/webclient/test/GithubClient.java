@@ -5,35 +5,42 @@ import java.net.URI;
 import java.text.DateFormat;
 import java.text.SimpleDateFormat;
 import java.time.Duration;
-import java.util.Date;
+import java.util.Collections;
+import java.util.List;
 import java.util.Locale;
+import java.util.Map;
 import java.util.TimeZone;
+import java.util.concurrent.TimeUnit;
 import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+import java.util.stream.Collectors;
 
 import javax.annotation.Nullable;
 
+import org.reactivestreams.Publisher;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.web.reactive.function.client.ClientRequest;
 import org.springframework.web.reactive.function.client.ClientResponse;
 import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
-import org.springframework.web.reactive.function.client.ExchangeFilterFunctions;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
 import org.springframework.web.reactive.function.client.WebClient;
-import org.springframework.web.util.DefaultUriBuilderFactory;
-import org.springframework.web.util.UriBuilder;
-import org.springframework.web.util.UriBuilderFactory;
+import org.springframework.web.util.UriComponentsBuilder;
 
-import com.google.common.util.concurrent.RateLimiter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.MetricRegistry;
+import com.fasterxml.jackson.databind.JsonNode;
 import net.voldrich.webclient.test.dto.GithubError;
 import net.voldrich.webclient.test.dto.User;
 import net.voldrich.webclient.test.dto.UserDetail;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
 import reactor.core.publisher.SynchronousSink;
-import reactor.core.scheduler.Scheduler;
-import reactor.core.scheduler.Schedulers;
 import reactor.util.function.Tuple2;
+import reactor.util.function.Tuples;
 import reactor.util.retry.Retry;
 
 /**
@@ -53,7 +60,10 @@ public class GithubClient {
 
     /**
      * Used DateFormat by this connector and github
+     *
+     * @deprecated shared SimpleDateFormat is not thread safe, use {@link GithubDates}
      */
+    @Deprecated
     public static final DateFormat DATE_FORMAT = new SimpleDateFormat(DATE_PATTERN, Locale.US);
 
     public static final String AGENT_NAME = "Github Spring WebClient connector";
@@ -62,20 +72,56 @@ public class GithubClient {
 
     public static final int DEFAULT_PAGE_SIZE = 10;
 
-    public static final String CONTEXT_REQUEST_START = "REQUEST_START";
+    /**
+     * Page size used by github when per_page parameter is missing.
+     */
+    public static final int GITHUB_DEFAULT_PAGE_SIZE = 30;
 
-    public static final Scheduler RATE_LIMIT_SCHEDULER = Schedulers.newSingle("RateLimitThread", true);
+    /**
+     * Pause after secondary rate limit response which does not advise Retry-After time.
+     */
+    public static final Duration DEFAULT_SECONDARY_RATE_LIMIT_DELAY = Duration.ofSeconds(60);
 
     private final GithubClientConfiguration config;
 
     private final WebClient client;
 
-    private final UriBuilderFactory builderFactory;
+    private final GithubConnector connector;
+
+    private final CompiledUriTemplate userDetailTemplate;
+
+    private final CompiledUriTemplate contributorsTemplate;
+
+    private final URI graphQlUri;
 
     private final LongAdder numberOfRequests = new LongAdder();
 
+    private final RequestPacer requestPacer;
+
+    private final PagingAdvisor pagingAdvisor = new PagingAdvisor();
+
+    private final GithubMetrics metrics;
+
+    @Nullable
+    private TokenPool tokenPool;
+
+    @Nullable
+    private ConditionalRequestCache conditionalRequestCache;
+
+    @Nullable
+    private DiskResponseStore diskResponseStore;
+
+    @Nullable
+    private UserDetailCache userDetailCache;
+
+    @Nullable
+    private PageCountStore pageCountStore;
+
+    @Nullable
+    private InFlightRequests inFlightRequests;
+
     @Nullable
-    private RateLimiter rateLimiter;
+    private RequestHedger requestHedger;
 
     static {
         DATE_FORMAT.setTimeZone(TimeZone.getTimeZone("UTC"));
@@ -86,22 +132,122 @@ public class GithubClient {
         PARALEL_FLAT_MAP,
         RECURSIVE,
         EXPAND,
+        PARALEL_ORDERED,
+        AUTO,
     }
 
     public GithubClient(GithubClientConfiguration config) {
         this.config = config;
-        this.builderFactory = new DefaultUriBuilderFactory(GITHUB_URL);
-        if (config.getRatePerSecond() > 0) {
-            this.rateLimiter = RateLimiter.create(config.getRatePerSecond());
+        this.userDetailTemplate = CompiledUriTemplate.compile(config.getBaseUrl(), USER_DETAIL_URL);
+        this.contributorsTemplate = CompiledUriTemplate.compile(config.getBaseUrl(),
+                CONTRIBUTORS_URL + "?per_page={perPage}");
+        this.graphQlUri = URI.create(config.getBaseUrl() + UserDetailQuery.GRAPHQL_URL);
+        this.requestPacer = new RequestPacer(config.getRatePerSecond());
+        if (!config.getAccessTokens().isEmpty()) {
+            this.tokenPool = new TokenPool(config.getAccessTokens());
+        }
+        ExchangeStrategies strategies = GithubCodecs.createExchangeStrategies(
+                GithubCodecs.createObjectMapper(config));
+        if (config.getDiskCacheDirectory() != null) {
+            this.diskResponseStore = new DiskResponseStore(config.getDiskCacheDirectory());
+            this.conditionalRequestCache = new ConditionalRequestCache(diskResponseStore, strategies);
+        } else if (config.getConditionalCacheSize() > 0) {
+            this.conditionalRequestCache = new ConditionalRequestCache(
+                    new InMemoryResponseStore(config.getConditionalCacheSize()), strategies);
+        }
+        if (config.getUserDetailCacheSize() > 0) {
+            this.userDetailCache = new UserDetailCache(config.getUserDetailCacheSize(),
+                    config.getUserDetailTimeToLive(), config.getUserDetailStaleWhileRevalidate());
+        }
+        if (config.isRequestCoalescing()) {
+            this.inFlightRequests = new InFlightRequests();
+        }
+        if (config.getPageCountStoreSize() > 0) {
+            this.pageCountStore = new PageCountStore(config.getPageCountStoreSize());
+        }
+        if (config.getHedgePercentile() > 0) {
+            this.requestHedger = new RequestHedger(config.getHedgePercentile(), config.getHedgeBudgetRatio());
         }
+        this.connector = new GithubConnector(config);
+        this.metrics = createMetrics(config);
         this.client = WebClient.builder()
-                .filter(ExchangeFilterFunctions.basicAuthentication("token ", config.getAccessToken()))
+                .clientConnector(connector.createConnector())
+                .exchangeStrategies(strategies)
+                .filters(filters -> {
+                    if (config.isAdaptiveRate()) {
+                        filters.add(adaptiveRateFilter());
+                    }
+                    if (conditionalRequestCache != null) {
+                        filters.add(conditionalRequestCache.filter());
+                    }
+                    if (tokenPool != null) {
+                        filters.add(tokenPool.filter());
+                    }
+                })
                 .filter(userAgent())
+                .filter(pagingAdvisor.filter())
+                .filter(metrics.filter())
                 .filter(loggingFilter())
-                .baseUrl(GITHUB_URL)
+                .filter(connector.getLatencyHistograms().filter())
+                .baseUrl(config.getBaseUrl())
                 .build();
     }
 
+    /**
+     * Releases connection pool, event loops and the disk response cache of the client.
+     */
+    public void dispose() {
+        metrics.close();
+        connector.dispose();
+        if (diskResponseStore != null) {
+            try {
+                diskResponseStore.close();
+            } catch (IOException e) {
+                logger.warn("Failed to close response cache {}", e.toString());
+            }
+        }
+    }
+
+    private GithubMetrics createMetrics(GithubClientConfiguration config) {
+        MetricRegistry registry = config.getMetricRegistry() != null
+                ? config.getMetricRegistry()
+                : new MetricRegistry();
+        GithubMetrics metrics = new GithubMetrics(registry);
+        metrics.registerGauge("requests.count", (Gauge<Long>) numberOfRequests::longValue);
+        metrics.registerGauge("pacer.intervalNanos", (Gauge<Long>) requestPacer::getIntervalNanos);
+        metrics.registerGauge("paging.roundTripNanos", (Gauge<Long>) pagingAdvisor::getRoundTripNanos);
+        for (Paging paging : Paging.values()) {
+            if (paging != Paging.AUTO) {
+                metrics.registerGauge("paging.decisions." + paging.name().toLowerCase(Locale.US),
+                        (Gauge<Long>) () -> pagingAdvisor.getDecisionCount(paging));
+            }
+        }
+        metrics.registerGauge("paging.lastDecision", (Gauge<String>) () -> {
+            Paging lastDecision = pagingAdvisor.getLastDecision();
+            return lastDecision != null ? lastDecision.name() : null;
+        });
+        metrics.registerGauge("paging.lastReason", (Gauge<String>) pagingAdvisor::getLastReason);
+        TransferStatistics transferStatistics = connector.getTransferStatistics();
+        metrics.registerGauge("transfer.transferredBytes", (Gauge<Long>) transferStatistics::getTransferredBytes);
+        metrics.registerGauge("transfer.decodedBytes", (Gauge<Long>) transferStatistics::getDecodedBytes);
+        for (LatencyHistograms.Phase phase : LatencyHistograms.Phase.values()) {
+            metrics.registerGauge("latency." + phase.name().toLowerCase(Locale.US) + ".p99Nanos",
+                    (Gauge<Long>) () -> connector.getLatencyHistograms().getSnapshot(phase).getP99());
+        }
+        if (requestHedger != null) {
+            metrics.registerGauge("hedging.hedges", (Gauge<Long>) requestHedger::getHedgeCount);
+            metrics.registerGauge("hedging.hedgeWins", (Gauge<Long>) requestHedger::getHedgeWinCount);
+            metrics.registerGauge("hedging.delayNanos", (Gauge<Long>) requestHedger::getHedgeDelayNanos);
+        }
+        if (config.isJmxReporting()) {
+            metrics.startJmxReporter();
+        }
+        if (config.getCsvReportDirectory() != null) {
+            metrics.startCsvReporter(config.getCsvReportDirectory().toFile(), config.getCsvReportPeriod());
+        }
+        return metrics;
+    }
+
     private ExchangeFilterFunction userAgent() {
         return (clientRequest, exchangeFunction) -> {
             ClientRequest newRequest = ClientRequest
@@ -112,39 +258,95 @@ public class GithubClient {
         };
     }
 
+    /**
+     * Feeds REST rate limit budget to the pacer after every response, GraphQL budget is not paced. Budget of the whole token pool is used
+     * when requests are authorized, it is updated by the token pool filter placed after this one.
+     */
+    private ExchangeFilterFunction adaptiveRateFilter() {
+        return ExchangeFilterFunction.ofResponseProcessor(clientResponse -> {
+            RateLimitStatus status = tokenPool != null
+                    ? tokenPool.getStatus()
+                    : RateLimitStatus.fromCoreHeaders(clientResponse.headers().asHttpHeaders());
+            if (status != null) {
+                requestPacer.adapt(status);
+            }
+            return Mono.just(clientResponse);
+        });
+    }
+
     private ExchangeFilterFunction loggingFilter() {
         return (clientRequest, exchangeFunction) -> {
             numberOfRequests.increment();
-            return exchangeFunction.exchange(clientRequest)
-                    .zipWith(Mono.subscriberContext()) // this must placed before subscriberContext, otherwise it
-                    // would be called in invalid order
-                    .doOnSubscribe(subscription -> logger.info("{} started: {}", clientRequest.method(),
-                            clientRequest.url().toString()))
-                    .subscriberContext(context -> context.put(CONTEXT_REQUEST_START, new Date()))
-                    .doOnNext(tuple -> {
-                        Date startTime = tuple.getT2().get(CONTEXT_REQUEST_START);
-                        Date endTime = new Date();
-                        long delta = endTime.getTime() - startTime.getTime();
-                        logger.info("{} finished {}: {} in {} ms",
+            if (!config.isRequestLogging() || !logger.isInfoEnabled()) {
+                return exchangeFunction.exchange(clientRequest);
+            }
+            return Mono.defer(() -> {
+                logger.info("{} started: {}", clientRequest.method(), clientRequest.url());
+                long start = System.nanoTime();
+                return exchangeFunction.exchange(clientRequest)
+                        .doOnNext(clientResponse -> logger.info("{} finished {}: {} in {} ms",
                                 clientRequest.method(),
-                                tuple.getT1().statusCode().toString(),
-                                clientRequest.url().toString(),
-                                delta
-                        );
-                    }).map(Tuple2::getT1);
+                                clientResponse.rawStatusCode(),
+                                clientRequest.url(),
+                                TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start)));
+            });
         };
     }
 
+    @Nullable
+    public UserDetailCache getUserDetailCache() {
+        return userDetailCache;
+    }
+
+    @Nullable
+    public InFlightRequests getInFlightRequests() {
+        return inFlightRequests;
+    }
+
+    @Nullable
+    public PageCountStore getPageCountStore() {
+        return pageCountStore;
+    }
+
+    public PagingAdvisor getPagingAdvisor() {
+        return pagingAdvisor;
+    }
+
+    public LatencyHistograms getLatencyHistograms() {
+        return connector.getLatencyHistograms();
+    }
+
+    /**
+     * @return p50, p99 and p99.9 of the latency phase since the client was created
+     */
+    public LatencySnapshot getLatencySnapshot(LatencyHistograms.Phase phase) {
+        return getLatencyHistograms().getSnapshot(phase);
+    }
+
+    @Nullable
+    public RequestHedger getRequestHedger() {
+        return requestHedger;
+    }
+
+    public GithubMetrics getMetrics() {
+        return metrics;
+    }
+
+    /**
+     * Transferred versus decoded bytes of all responses.
+     */
+    public TransferStatistics getTransferStatistics() {
+        return connector.getTransferStatistics();
+    }
+
     public Flux<UserDetail> loadContributorSinglePage() {
-        return loadContributors()
-                .flatMap(user -> loadUserDetail(user.getLogin()));
+        return loadUserDetails(Paging.PARALEL_FLAT_MAP, loadContributors());
     }
 
     public Flux<UserDetail> loadContributorsPaged(Paging pagingType) {
-        URI pageUri = urlBuilder(CONTRIBUTORS_URL)
-                .queryParam("per_page", DEFAULT_PAGE_SIZE)
-                .build(config.getOwner(), config.getRepository());
+        URI pageUri = contributorsTemplate.expand(config.getOwner(), config.getRepository(), DEFAULT_PAGE_SIZE);
         return performPageableRequest(pagingType, pageUri, 100)
+                .subscriberContext(GithubMetrics.uriTemplate(CONTRIBUTORS_URL))
                 .log()
                 .doOnComplete(() -> logger.info("Total Request Count: {}", numberOfRequests.longValue()));
     }
@@ -152,35 +354,103 @@ public class GithubClient {
     public Flux<UserDetail> performPageableRequest(Paging pagingType, URI uri, int pagesLimit) {
         switch (pagingType) {
             case PARALEL_FLAT_MAP:
-                return performPageableRequestParallelFlatMap(uri, User.class, pagesLimit)
-                        .flatMap(user -> loadUserDetail(user.getLogin()));
+                return loadUserDetails(pagingType, performPageableRequestParallelFlatMap(uri, User.class, pagesLimit));
             case RECURSIVE:
-                return performPageableRequestRecursive(uri, User.class, pagesLimit)
-                        .flatMap(user -> loadUserDetail(user.getLogin()));
+                return loadUserDetails(pagingType, performPageableRequestRecursive(uri, User.class, pagesLimit));
             case EXPAND:
-                return performPageableRequestExpand(uri, User.class)
-                        .flatMap(user -> loadUserDetail(user.getLogin()));
+                return loadUserDetails(pagingType, performPageableRequestExpand(uri, User.class));
             case PARALEL_CONCAT_MAP:
-                return performPageableRequestParallelConcatMap(uri, User.class, pagesLimit)
-                        .concatMap(user -> loadUserDetail(user.getLogin()));
+                return loadUserDetails(pagingType,
+                        performPageableRequestParallelConcatMap(uri, User.class, pagesLimit));
+            case PARALEL_ORDERED:
+                return loadUserDetails(pagingType, performPageableRequestParallelOrdered(uri, User.class, pagesLimit));
+            case AUTO:
+                return performPageableRequest(choosePaging(uri, pagesLimit), uri, pagesLimit);
         }
         return Flux.empty();
     }
 
+    /**
+     * Loads details of the users one by one, or in GraphQL batches when configured.
+     */
+    private Flux<UserDetail> loadUserDetails(Paging pagingType, Flux<User> users) {
+        if (config.getUserDetailBatchSize() > 0) {
+            return loadUserDetails(pagingType, users
+                    .map(User::getLogin)
+                    .bufferTimeout(config.getUserDetailBatchSize(), config.getUserDetailBatchWindow()),
+                    this::loadUserDetailBatch);
+        }
+        return loadUserDetails(pagingType, users, user -> loadUserDetail(user.getLogin()));
+    }
+
+    private <E> Flux<UserDetail> loadUserDetails(Paging pagingType, Flux<E> items,
+                                                 Function<E, Publisher<UserDetail>> loader) {
+        switch (pagingType) {
+            case PARALEL_CONCAT_MAP:
+                return items.concatMap(loader);
+            case PARALEL_ORDERED:
+                return items.flatMapSequential(loader, config.getDetailConcurrency(), config.getPagePrefetch());
+            default:
+                return items.flatMap(loader);
+        }
+    }
 
     protected Flux<UserDetail> loadUserDetail(String name) {
-        return getRequest(urlBuilder(USER_DETAIL_URL).build(name), UserDetail.class);
+        if (userDetailCache != null) {
+            return userDetailCache.get(name, login -> fetchUserDetail(login).next()).flux();
+        }
+        return fetchUserDetail(name);
     }
 
-    protected Flux<User> loadContributors() {
-        URI uri = urlBuilder(CONTRIBUTORS_URL)
-                .queryParam("per_page", 100)
-                .build(config.getOwner(), config.getRepository());
-        return getRequest(uri, User.class);
+    private Flux<UserDetail> fetchUserDetail(String name) {
+        return getRequest(userDetailTemplate.expand(name), UserDetail.class)
+                .subscriberContext(GithubMetrics.uriTemplate(USER_DETAIL_URL));
     }
 
-    private UriBuilder urlBuilder(String urlPath) {
-        return builderFactory.builder().path(urlPath);
+    /**
+     * Resolves logins missing in the user detail cache by one GraphQL query, cached logins are loaded
+     * as single user details. Details are emitted in order of the logins.
+     */
+    protected Flux<UserDetail> loadUserDetailBatch(List<String> logins) {
+        List<String> missing = userDetailCache == null ? logins : logins.stream()
+                .filter(login -> !userDetailCache.contains(login))
+                .collect(Collectors.toList());
+        Mono<Map<String, UserDetail>> resolved = missing.isEmpty()
+                ? Mono.just(Collections.emptyMap())
+                : queryUserDetails(missing);
+        return resolved.flatMapMany(details -> Flux.fromIterable(logins)
+                .concatMap(login -> {
+                    UserDetail detail = details.get(login);
+                    if (detail != null) {
+                        return Mono.just(detail);
+                    }
+                    return missing.contains(login) ? Mono.empty() : loadUserDetail(login);
+                }));
+    }
+
+    private Mono<Map<String, UserDetail>> queryUserDetails(List<String> logins) {
+        UserDetailQuery query = new UserDetailQuery(logins);
+        Mono<ClientResponse> requestMono = this.client
+                .post()
+                .uri(graphQlUri)
+                .contentType(MediaType.APPLICATION_JSON)
+                .bodyValue(query.toRequest())
+                .exchange();
+        return exchange(requestMono, graphQlUri)
+                .flatMap(response -> connector.getLatencyHistograms().recordBody(response.bodyToMono(JsonNode.class)))
+                .map(response -> query.readResponse(response, config.getBaseUrl()))
+                .doOnNext(details -> {
+                    if (userDetailCache != null) {
+                        details.forEach(userDetailCache::put);
+                    }
+                })
+                .subscriberContext(GithubMetrics.uriTemplate(UserDetailQuery.GRAPHQL_URL));
+    }
+
+    protected Flux<User> loadContributors() {
+        URI uri = contributorsTemplate.expand(config.getOwner(), config.getRepository(), 100);
+        return getRequest(uri, User.class)
+                .subscriberContext(GithubMetrics.uriTemplate(CONTRIBUTORS_URL));
     }
 
     /**
@@ -189,83 +459,331 @@ public class GithubClient {
      */
     private <T> Mono<GithubResponseWrapper<T>> getRequestWrapped(URI uri, Class<T> clazz) {
         return getRequest(uri)
-                .map(response -> new GithubResponseWrapper<T>(response, clazz));
+                .map(response -> new GithubResponseWrapper<T>(response, clazz, connector.getLatencyHistograms()));
     }
 
     private <T> Flux<T> getRequest(URI uri, Class<T> clazz) {
+        if (inFlightRequests != null) {
+            return inFlightRequests.share(uri, clazz, () -> getRequestBody(uri, clazz));
+        }
+        return getRequestBody(uri, clazz);
+    }
+
+    private <T> Flux<T> getRequestBody(URI uri, Class<T> clazz) {
         return getRequest(uri)
-                .flatMapMany(response -> response.bodyToFlux(clazz));
+                .flatMapMany(response -> connector.getLatencyHistograms().recordBody(response.bodyToFlux(clazz)));
     }
 
+    /**
+     * Every attempt, including retries, passes the pacer. Rate limited requests are retried once the
+     * pause advised by github is over. With hedging enabled a slow attempt is raced by a duplicate which
+     * takes its own permit of the pacer. The slower attempt is cancelled, a response which arrived too late
+     * to win is released.
+     */
     private Mono<ClientResponse> getRequest(URI uri) {
         Mono<ClientResponse> requestMono = this.client
                 .get()
                 .uri(uri)
                 .accept(VND_GITHUB_V3)
-                .exchange()
+                .exchange();
+        if (requestHedger != null) {
+            return exchange(requestHedger.hedge(requestMono, limitRateRequest(requestMono, uri),
+                    response -> response.releaseBody().subscribe()), uri);
+        }
+        return exchange(requestMono, uri);
+    }
+
+    private Mono<ClientResponse> exchange(Mono<ClientResponse> requestMono, URI uri) {
+        return limitRateRequest(requestMono, uri)
                 .flatMap(this::checkResponse)
+                .doOnError(GithubRateLimitException.class, this::pauseRequests)
                 .retryWhen(Retry.backoff(3, Duration.ofMillis(500)).filter(throwable -> {
                     logger.warn("Request {} failed {}", uri, throwable.toString());
                     return throwable instanceof IOException;
-                }));
-
-        return limitRateRequest(requestMono, uri);
+                }))
+                .retryWhen(Retry.max(config.getRateLimitRetries())
+                        .filter(throwable -> throwable instanceof GithubRateLimitException));
     }
 
     private Mono<ClientResponse> limitRateRequest(Mono<ClientResponse> requestMono, URI uri) {
-        if (rateLimiter != null) {
-            return Mono.<ClientResponse>create(monoSink -> {
-                rateLimiter.acquire();
-                logger.debug("Subscribing to request {}", uri);
-                requestMono.subscribe(
-                        clientResponse -> monoSink.success(clientResponse),
-                        throwable -> monoSink.error(throwable));
-            }).subscribeOn(RATE_LIMIT_SCHEDULER);
-        } else {
-            return requestMono;
-        }
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return requestPacer.limit(requestMono
+                    .doOnSubscribe(subscription -> {
+                        getLatencyHistograms().record(LatencyHistograms.Phase.LIMITER_WAIT, System.nanoTime() - start);
+                        logger.debug("Subscribing to request {}", uri);
+                    }));
+        });
     }
 
     private Mono<ClientResponse> checkResponse(ClientResponse response) {
         if (!response.statusCode().is2xxSuccessful()) {
             return response.bodyToMono(GithubError.class)
-                    .flatMap(errorResponse -> Mono.error(new GithubClientException(
-                            "HTTP request failed with status: " + response.statusCode() +
-                                    ": " + errorResponse.getMessage())));
+                    .defaultIfEmpty(new GithubError())
+                    .flatMap(errorResponse -> Mono.error(createException(response, errorResponse)));
         } else {
             return Mono.just(response);
         }
     }
 
+    private GithubClientException createException(ClientResponse response, GithubError errorResponse) {
+        String message = "HTTP request failed with status: " + response.statusCode() +
+                ": " + errorResponse.getMessage();
+        GithubRateLimitException rateLimitException = classifyRateLimit(response, errorResponse, message);
+        return rateLimitException != null ? rateLimitException : new GithubClientException(message);
+    }
+
+    /**
+     * Recognizes primary and secondary (abuse) rate limit responses. Secondary limits and exhausted budget
+     * without token pool apply to all requests of this client. Exhausted REST budget of a token of the pool
+     * is parked by the pool itself, other tokens may still be used. The pool does not track GraphQL budget,
+     * its exhaustion pauses the whole client. Has no side effects, see {@link #pauseRequests}.
+     *
+     * @return null when the request was not rejected by rate limit
+     */
+    @Nullable
+    private GithubRateLimitException classifyRateLimit(ClientResponse response, GithubError errorResponse,
+                                                       String message) {
+        int status = response.rawStatusCode();
+        if (status != HttpStatus.FORBIDDEN.value() && status != HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return null;
+        }
+        HttpHeaders headers = response.headers().asHttpHeaders();
+        String errorMessage = errorResponse.getMessage() != null
+                ? errorResponse.getMessage().toLowerCase(Locale.US) : "";
+        String retryAfterHeader = headers.getFirst(HttpHeaders.RETRY_AFTER);
+        RateLimitStatus rateLimitStatus = RateLimitStatus.fromHeaders(headers);
+
+        if (retryAfterHeader != null) {
+            return new GithubRateLimitException(message, parseRetryAfter(retryAfterHeader));
+        } else if (errorMessage.contains("secondary rate limit") || errorMessage.contains("abuse")) {
+            return new GithubRateLimitException(message, DEFAULT_SECONDARY_RATE_LIMIT_DELAY);
+        } else if (rateLimitStatus != null && rateLimitStatus.getRemaining() == 0) {
+            Duration delay = Duration.ofMillis(
+                    Math.max(0, rateLimitStatus.getResetEpochMillis() - System.currentTimeMillis()));
+            return new GithubRateLimitException(message, delay,
+                    tokenPool == null || RateLimitStatus.fromCoreHeaders(headers) == null);
+        } else if (status == HttpStatus.TOO_MANY_REQUESTS.value()) {
+            return new GithubRateLimitException(message, DEFAULT_SECONDARY_RATE_LIMIT_DELAY);
+        }
+        return null;
+    }
+
+    /**
+     * Pauses all requests of this client for the time advised by a client wide rate limit.
+     */
+    private void pauseRequests(GithubRateLimitException exception) {
+        if (exception.isClientWide()) {
+            logger.warn("{}, pausing all requests for {} ms", exception.getMessage(),
+                    exception.getRetryAfter().toMillis());
+            requestPacer.pauseFor(exception.getRetryAfter().toNanos());
+        } else {
+            logger.warn("Access token rate limit exhausted, {}", exception.getMessage());
+        }
+    }
+
+    private static Duration parseRetryAfter(String retryAfter) {
+        try {
+            return Duration.ofSeconds(Long.parseLong(retryAfter.trim()));
+        } catch (NumberFormatException e) {
+            return DEFAULT_SECONDARY_RATE_LIMIT_DELAY;
+        }
+    }
+
     private <T> Flux<T> performPageableRequestRecursive(URI uri, Class<T> clazz, int pagesLimit) {
-        return getRequestWrapped(uri, clazz)
-                .flatMapMany(responseWrapper -> responseWrapper.getData()
-                        .concatWith(pagesLimit == 0 ? Flux.empty() : responseWrapper.getNextLink()
-                                .concatMap(link -> performPageableRequestRecursive(
-                                        link.getUri(), clazz, pagesLimit - 1))));
+        if (config.getSpeculativePages() > 0) {
+            return performPageableRequestSpeculative(uri, clazz, pagesLimit);
+        }
+        return performPageableRequestSequential(getFirstPage(uri, clazz), clazz, pagesLimit);
+    }
+
+    /**
+     * Emits data of the page and recursively of pages following its next link.
+     */
+    private <T> Flux<T> performPageableRequestSequential(Mono<GithubResponseWrapper<T>> page, Class<T> clazz,
+                                                         int pagesLimit) {
+        return page.flatMapMany(responseWrapper -> responseWrapper.getData()
+                .concatWith(pagesLimit == 0 ? Flux.empty() : responseWrapper.getNextUri()
+                        .flatMapMany(nextUri -> performPageableRequestSequential(
+                                getRequestWrapped(nextUri, clazz), clazz, pagesLimit - 1))));
     }
 
-    /* flatMap never finishes when using rate limiter, concatMap finishes just fine.*/
     private <T> Flux<T> performPageableRequestParallelFlatMap(URI uri, Class<T> clazz, int pageLimit) {
-        return getRequestWrapped(uri, clazz)
+        String lastLink = pageCountStore != null ? pageCountStore.getLastLink(uri) : null;
+        if (lastLink != null) {
+            return performPageableRequestRemembered(Paging.PARALEL_FLAT_MAP, uri, clazz, pageLimit, lastLink);
+        }
+        return getFirstPage(uri, clazz)
                 .flatMapMany(responseWrapper -> responseWrapper.getData()
-                        .mergeWith(responseWrapper.getAllPageUri(pageLimit, builderFactory)
+                        .mergeWith(responseWrapper.getAllPageUri(pageLimit)
                                 .flatMap(pageLink -> getRequest(pageLink, clazz))));
     }
 
     private <T> Flux<T> performPageableRequestParallelConcatMap(URI uri, Class<T> clazz, int pageLimit) {
-        return getRequestWrapped(uri, clazz)
+        String lastLink = pageCountStore != null ? pageCountStore.getLastLink(uri) : null;
+        if (lastLink != null) {
+            return performPageableRequestRemembered(Paging.PARALEL_CONCAT_MAP, uri, clazz, pageLimit, lastLink);
+        }
+        return getFirstPage(uri, clazz)
                 .flatMapMany(responseWrapper -> responseWrapper.getData()
-                        .concatWith(responseWrapper.getAllPageUri(pageLimit, builderFactory)
+                        .concatWith(responseWrapper.getAllPageUri(pageLimit)
                                 .concatMap(pageLink -> getRequest(pageLink, clazz))));
     }
 
-    private <T> Flux<T> performPageableRequestExpand(URI uri, Class<T> clazz) {
+    /**
+     * Fetches up to page concurrency pages at once, flatMapSequential buffers results of pages
+     * finished out of order and emits them in page order.
+     */
+    private <T> Flux<T> performPageableRequestParallelOrdered(URI uri, Class<T> clazz, int pageLimit) {
+        String lastLink = pageCountStore != null ? pageCountStore.getLastLink(uri) : null;
+        if (lastLink != null) {
+            return performPageableRequestRemembered(Paging.PARALEL_ORDERED, uri, clazz, pageLimit, lastLink);
+        }
+        return getFirstPage(uri, clazz)
+                .flatMapMany(responseWrapper -> responseWrapper.getData()
+                        .concatWith(responseWrapper.getAllPageUri(pageLimit)
+                                .flatMapSequential(pageLink -> getRequest(pageLink, clazz),
+                                        config.getPageConcurrency(), config.getPagePrefetch())));
+    }
+
+    /**
+     * Requests pages 2 to the remembered last page together with the first page. Expected pages wait for
+     * the first page, pages past its actual last page are released, pages beyond the remembered last page
+     * are requested afterwards. Expected pages are all dropped when the page link pattern has changed.
+     * Responses of expected pages held while the crawl fails or is cancelled are released.
+     */
+    private <T> Flux<T> performPageableRequestRemembered(Paging paging, URI uri, Class<T> clazz, int pageLimit,
+                                                         String lastLink) {
+        CompiledUriTemplate pageTemplate = CompiledUriTemplate.ofPageLink(lastLink);
+        int expectedPages = Math.min(CompiledUriTemplate.getPageNumber(lastLink), pageLimit);
+        Mono<GithubResponseWrapper<T>> firstPage = getFirstPage(uri, clazz).cache();
+        Mono<Integer> confirmedPages = firstPage
+                .map(responseWrapper -> {
+                    String actualLastLink = responseWrapper.getPageLinks().getLast();
+                    if (actualLastLink == null || !pageTemplate.getTemplate()
+                            .equals(CompiledUriTemplate.ofPageLink(actualLastLink).getTemplate())) {
+                        return 1;
+                    }
+                    int actualPages = Math.min(CompiledUriTemplate.getPageNumber(actualLastLink), pageLimit);
+                    return Math.min(actualPages, expectedPages);
+                })
+                // failure of the first page is signalled by the first branch only
+                .onErrorResume(throwable -> Mono.empty())
+                .cache();
+
+        // pages which are not read, including all pages when the first page failed, are dropped on completion
+        Flux<T> expected = fanOut(paging, Flux.range(2, Math.max(0, expectedPages - 1)),
+                page -> Flux.usingWhen(getRequestWrapped(pageTemplate.expand(page), clazz),
+                        pageWrapper -> confirmedPages.flatMapMany(confirmed -> page <= confirmed
+                                ? pageWrapper.getData() : Flux.empty()),
+                        pageWrapper -> Mono.fromRunnable(() -> dropPage(pageWrapper)),
+                        (pageWrapper, throwable) -> Mono.fromRunnable(() -> dropPage(pageWrapper)),
+                        pageWrapper -> Mono.fromRunnable(() -> dropPage(pageWrapper))));
+        Flux<T> missing = Mono.zip(firstPage.onErrorResume(throwable -> Mono.empty()), confirmedPages)
+                .flatMapMany(tuple -> fanOut(paging, tuple.getT1().getAllPageUri(pageLimit).skip(tuple.getT2() - 1),
+                        pageUri -> getRequest(pageUri, clazz)));
+        Flux<T> first = firstPage.flatMapMany(GithubResponseWrapper::getData);
+        return paging == Paging.PARALEL_FLAT_MAP
+                ? Flux.merge(first, expected, missing)
+                : Flux.mergeSequential(first, expected, missing);
+    }
+
+    private void dropPage(GithubResponseWrapper<?> pageWrapper) {
+        if (pageWrapper.release() && pageCountStore != null) {
+            pageCountStore.pageDropped();
+        }
+    }
+
+    private <P, T> Flux<T> fanOut(Paging paging, Flux<P> pages, Function<P, Publisher<T>> request) {
+        switch (paging) {
+            case PARALEL_FLAT_MAP:
+                return pages.flatMap(request);
+            case PARALEL_CONCAT_MAP:
+                return pages.concatMap(request);
+            default:
+                return pages.flatMapSequential(request, config.getPageConcurrency(), config.getPagePrefetch());
+        }
+    }
+
+    /**
+     * First page of a crawl, its page count is recorded for paging decisions.
+     */
+    private <T> Mono<GithubResponseWrapper<T>> getFirstPage(URI uri, Class<T> clazz) {
         return getRequestWrapped(uri, clazz)
+                .doOnNext(responseWrapper -> {
+                    pagingAdvisor.recordPageCount(responseWrapper.getLastPageNumber());
+                    if (pageCountStore != null) {
+                        pageCountStore.update(uri, responseWrapper.getPageLinks().getLast());
+                    }
+                });
+    }
+
+    /**
+     * Every contributor of a page is resolved by its own detail request, unless details are batched
+     * to GraphQL queries which do not take REST budget.
+     */
+    private Paging choosePaging(URI uri, int pagesLimit) {
+        int expectedPages = pageCountStore != null ? pageCountStore.getPageCount(uri) : 0;
+        int detailRequestsPerPage = config.getUserDetailBatchSize() > 0 ? 0 : getPageSize(uri);
+        RateLimitStatus status = tokenPool != null ? tokenPool.getStatus() : pagingAdvisor.getLastStatus();
+        return pagingAdvisor.choose(expectedPages, pagesLimit, 1 + detailRequestsPerPage, status,
+                requestPacer.getIntervalNanos());
+    }
+
+    private static int getPageSize(URI uri) {
+        String perPage = UriComponentsBuilder.fromUri(uri).build().getQueryParams().getFirst("per_page");
+        if (perPage != null) {
+            try {
+                return Integer.parseInt(perPage);
+            } catch (NumberFormatException e) {
+                logger.debug("Invalid page size of {}", uri);
+            }
+        }
+        return GITHUB_DEFAULT_PAGE_SIZE;
+    }
+
+    private <T> Flux<T> performPageableRequestExpand(URI uri, Class<T> clazz) {
+        if (config.getSpeculativePages() > 0) {
+            return performPageableRequestSpeculative(uri, clazz, Integer.MAX_VALUE);
+        }
+        return getFirstPage(uri, clazz)
                 .expand(responseWrapper -> responseWrapper
-                        .getNextLink()
-                        .flatMap(link -> getRequestWrapped(link.getUri(), clazz)))
+                        .getNextUri()
+                        .flatMap(nextUri -> getRequestWrapped(nextUri, clazz)))
                 .flatMap(GithubResponseWrapper::getData);
     }
 
+    /**
+     * Sequential paging which requests the next speculative pages count of pages ahead, page URIs
+     * are derived from the next link of the first page. Each page is decoded as a whole before it is
+     * emitted, pages are emitted in order until a page without next link and requests of pages past
+     * it are cancelled. Failure of a page is raised only when the page is reached in order, pages past
+     * the last one may fail without failing the crawl. Falls back to sequential paging when the next link has no page parameter.
+     */
+    private <T> Flux<T> performPageableRequestSpeculative(URI uri, Class<T> clazz, int pagesLimit) {
+        return getFirstPage(uri, clazz)
+                .flatMapMany(responseWrapper -> {
+                    String next = responseWrapper.getPageLinks().getNext();
+                    if (next == null || pagesLimit == 0) {
+                        return responseWrapper.getData();
+                    }
+                    int nextPage = CompiledUriTemplate.getPageNumber(next);
+                    if (nextPage < 0) {
+                        return responseWrapper.getData().concatWith(performPageableRequestSequential(
+                                getRequestWrapped(URI.create(next), clazz), clazz, pagesLimit - 1));
+                    }
+                    CompiledUriTemplate pageTemplate = CompiledUriTemplate.ofPageLink(next);
+                    return responseWrapper.getData()
+                            .concatWith(Flux.range(nextPage, Math.min(pagesLimit, Integer.MAX_VALUE - nextPage))
+                                    .flatMapSequential(page -> getRequestWrapped(pageTemplate.expand(page), clazz)
+                                                    .flatMap(pageWrapper -> pageWrapper.getData()
+                                                            .collectList()
+                                                            .map(data -> Tuples.of(pageWrapper.getPageLinks().hasNext(), data)))
+                                                    .materialize(),
+                                            config.getSpeculativePages() + 1, 1)
+                                    .takeUntil(page -> page.isOnError() || !page.get().getT1())
+                                    .<Tuple2<Boolean, List<T>>>dematerialize()
+                                    .concatMapIterable(Tuple2::getT2));
+                });
+    }
 }
@@ -1,5 +1,20 @@
 package net.voldrich.webclient.test;
 
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import javax.annotation.Nullable;
+
+import com.codahale.metrics.MetricRegistry;
+import reactor.netty.resources.LoopResources;
+
 public class GithubClientConfiguration {
 
     private final String owner;
@@ -10,6 +25,76 @@ public class GithubClientConfiguration {
 
     private final int ratePerSecond;
 
+    @Nullable
+    private List<String> accessTokens;
+
+    private boolean adaptiveRate;
+
+    private int rateLimitRetries = 3;
+
+    private int conditionalCacheSize;
+
+    @Nullable
+    private Path diskCacheDirectory;
+
+    private int userDetailCacheSize;
+
+    private Duration userDetailTimeToLive = Duration.ofHours(1);
+
+    private Duration userDetailStaleWhileRevalidate = Duration.ofHours(1);
+
+    private boolean requestCoalescing;
+
+    private final Map<Class<?>, Set<String>> projections = new HashMap<>();
+
+    private boolean leanDecoding;
+
+    private int pageConcurrency = 4;
+
+    private int pagePrefetch = 1;
+
+    private int detailConcurrency = 8;
+
+    private int speculativePages;
+
+    private int pageCountStoreSize;
+
+    private String baseUrl = GithubClient.GITHUB_URL;
+
+    private int userDetailBatchSize;
+
+    private Duration userDetailBatchWindow = Duration.ofMillis(50);
+
+    private int maxConnections = 500;
+
+    private int pendingAcquireMaxCount = -1;
+
+    private Duration pendingAcquireTimeout = Duration.ofSeconds(30);
+
+    private Duration maxIdleTime = Duration.ofSeconds(30);
+
+    private int eventLoopThreads = LoopResources.DEFAULT_IO_WORKER_COUNT;
+
+    private boolean nativeTransport = true;
+
+    private boolean compression;
+
+    @Nullable
+    private MetricRegistry metricRegistry;
+
+    private boolean jmxReporting;
+
+    @Nullable
+    private Path csvReportDirectory;
+
+    private Duration csvReportPeriod = Duration.ofSeconds(10);
+
+    private boolean requestLogging = true;
+
+    private double hedgePercentile;
+
+    private double hedgeBudgetRatio;
+
     public GithubClientConfiguration(String owner, String repository, String accessToken, int ratePerSecond) {
         this.owner = owner;
         this.repository = repository;
@@ -29,7 +114,356 @@ public class GithubClientConfiguration {
         return accessToken;
     }
 
+    /**
+     * Tokens of the pool when configured, otherwise the single access token.
+     */
+    public List<String> getAccessTokens() {
+        if (accessTokens != null) {
+            return accessTokens;
+        }
+        return accessToken != null ? Collections.singletonList(accessToken) : Collections.emptyList();
+    }
+
+    /**
+     * Spreads requests over a pool of access tokens, each with its own rate limit budget.
+     * Replaces the single access token.
+     */
+    public GithubClientConfiguration withAccessTokens(String... accessTokens) {
+        this.accessTokens = Collections.unmodifiableList(Arrays.asList(accessTokens));
+        return this;
+    }
+
     public int getRatePerSecond() {
         return ratePerSecond;
     }
+
+    public boolean isAdaptiveRate() {
+        return adaptiveRate;
+    }
+
+    /**
+     * Paces requests by X-RateLimit-Remaining / X-RateLimit-Reset headers, spreading the remaining
+     * budget evenly until the reset. Rate per second, when set, is then used as an upper bound.
+     */
+    public GithubClientConfiguration withAdaptiveRate(boolean adaptiveRate) {
+        this.adaptiveRate = adaptiveRate;
+        return this;
+    }
+
+    public int getRateLimitRetries() {
+        return rateLimitRetries;
+    }
+
+    /**
+     * Number of retries of a request rejected by primary or secondary rate limit.
+     */
+    public GithubClientConfiguration withRateLimitRetries(int rateLimitRetries) {
+        this.rateLimitRetries = rateLimitRetries;
+        return this;
+    }
+
+    public int getConditionalCacheSize() {
+        return conditionalCacheSize;
+    }
+
+    /**
+     * Enables ETag / Last-Modified conditional requests, remembering up to given number of responses.
+     * Zero (default) disables conditional requests.
+     */
+    public GithubClientConfiguration withConditionalCacheSize(int conditionalCacheSize) {
+        this.conditionalCacheSize = conditionalCacheSize;
+        return this;
+    }
+
+    @Nullable
+    public Path getDiskCacheDirectory() {
+        return diskCacheDirectory;
+    }
+
+    /**
+     * Enables conditional requests backed by persistent response cache stored in given directory.
+     * Responses stored by a previous run are served right away and revalidated in background.
+     */
+    public GithubClientConfiguration withDiskCache(Path diskCacheDirectory) {
+        this.diskCacheDirectory = diskCacheDirectory;
+        return this;
+    }
+
+    public int getUserDetailCacheSize() {
+        return userDetailCacheSize;
+    }
+
+    public Duration getUserDetailTimeToLive() {
+        return userDetailTimeToLive;
+    }
+
+    public Duration getUserDetailStaleWhileRevalidate() {
+        return userDetailStaleWhileRevalidate;
+    }
+
+    /**
+     * Caches up to given number of decoded user details. Entries older than time to live are served
+     * stale and refreshed in background for the stale-while-revalidate period. Zero (default) disables the cache.
+     */
+    public GithubClientConfiguration withUserDetailCache(int size, Duration timeToLive,
+                                                         Duration staleWhileRevalidate) {
+        this.userDetailCacheSize = size;
+        this.userDetailTimeToLive = timeToLive;
+        this.userDetailStaleWhileRevalidate = staleWhileRevalidate;
+        return this;
+    }
+
+    public boolean isRequestCoalescing() {
+        return requestCoalescing;
+    }
+
+    /**
+     * Concurrent GET requests for the same URI share one exchange and decoded result.
+     */
+    public GithubClientConfiguration withRequestCoalescing(boolean requestCoalescing) {
+        this.requestCoalescing = requestCoalescing;
+        return this;
+    }
+
+    public Map<Class<?>, Set<String>> getProjections() {
+        return Collections.unmodifiableMap(projections);
+    }
+
+    /**
+     * Decodes only given JSON fields of the DTO type, all other fields are skipped without allocation.
+     */
+    public GithubClientConfiguration withProjection(Class<?> type, String... jsonFields) {
+        this.projections.put(type, new HashSet<>(Arrays.asList(jsonFields)));
+        return this;
+    }
+
+    public boolean isLeanDecoding() {
+        return leanDecoding;
+    }
+
+    /**
+     * Drops unknown JSON properties of all DTOs instead of collecting them into additional properties.
+     */
+    public GithubClientConfiguration withLeanDecoding(boolean leanDecoding) {
+        this.leanDecoding = leanDecoding;
+        return this;
+    }
+
+    public int getPageConcurrency() {
+        return pageConcurrency;
+    }
+
+    public int getPagePrefetch() {
+        return pagePrefetch;
+    }
+
+    public int getDetailConcurrency() {
+        return detailConcurrency;
+    }
+
+    /**
+     * Concurrency of {@link GithubClient.Paging#PARALEL_ORDERED} paging. At most page concurrency pages
+     * are fetched at once, prefetch bounds the number of buffered items per page and detail concurrency
+     * bounds user detail requests. Results of both stages are emitted in page order.
+     */
+    public GithubClientConfiguration withOrderedPaging(int pageConcurrency, int pagePrefetch, int detailConcurrency) {
+        this.pageConcurrency = pageConcurrency;
+        this.pagePrefetch = pagePrefetch;
+        this.detailConcurrency = detailConcurrency;
+        return this;
+    }
+
+    public int getSpeculativePages() {
+        return speculativePages;
+    }
+
+    /**
+     * Number of pages requested ahead of the current one by {@link GithubClient.Paging#EXPAND} and
+     * {@link GithubClient.Paging#RECURSIVE} paging, page URIs are derived from the first next link.
+     * Pages past the last one are cancelled or released. Zero (default) fetches pages strictly one by one.
+     */
+    public GithubClientConfiguration withSpeculativePages(int speculativePages) {
+        this.speculativePages = speculativePages;
+        return this;
+    }
+
+    public int getPageCountStoreSize() {
+        return pageCountStoreSize;
+    }
+
+    /**
+     * Remembers last page links of up to given number of endpoints. Parallel paging then requests
+     * the expected pages together with the first page, pages past the actual last page are dropped.
+     * Zero (default) disables the store.
+     */
+    public GithubClientConfiguration withPageCountStore(int pageCountStoreSize) {
+        this.pageCountStoreSize = pageCountStoreSize;
+        return this;
+    }
+
+    public String getBaseUrl() {
+        return baseUrl;
+    }
+
+    /**
+     * REST API URL, GraphQL endpoint is expected at {@code /graphql} under it.
+     * Defaults to {@link GithubClient#GITHUB_URL}.
+     */
+    public GithubClientConfiguration withBaseUrl(String baseUrl) {
+        this.baseUrl = baseUrl;
+        return this;
+    }
+
+    public int getUserDetailBatchSize() {
+        return userDetailBatchSize;
+    }
+
+    public Duration getUserDetailBatchWindow() {
+        return userDetailBatchWindow;
+    }
+
+    /**
+     * Resolves user details of paged contributors by GraphQL queries of up to given number of logins,
+     * a batch is sent when full or when the window since its first login elapses. Requires an access token.
+     * Zero (default) loads every user detail by its own REST request.
+     */
+    public GithubClientConfiguration withUserDetailBatch(int size, Duration window) {
+        this.userDetailBatchSize = size;
+        this.userDetailBatchWindow = window;
+        return this;
+    }
+
+    public int getMaxConnections() {
+        return maxConnections;
+    }
+
+    public int getPendingAcquireMaxCount() {
+        return pendingAcquireMaxCount;
+    }
+
+    public Duration getPendingAcquireTimeout() {
+        return pendingAcquireTimeout;
+    }
+
+    public Duration getMaxIdleTime() {
+        return maxIdleTime;
+    }
+
+    /**
+     * Connection pool of the client. Defaults allow 500 connections, unbounded number of requests waiting
+     * for a connection up to 30 seconds, and close connections idle for 30 seconds.
+     *
+     * @param pendingAcquireMaxCount maximal number of requests waiting for a connection, -1 for unbounded
+     */
+    public GithubClientConfiguration withConnectionPool(int maxConnections, int pendingAcquireMaxCount,
+                                                        Duration pendingAcquireTimeout, Duration maxIdleTime) {
+        this.maxConnections = maxConnections;
+        this.pendingAcquireMaxCount = pendingAcquireMaxCount;
+        this.pendingAcquireTimeout = pendingAcquireTimeout;
+        this.maxIdleTime = maxIdleTime;
+        return this;
+    }
+
+    public int getEventLoopThreads() {
+        return eventLoopThreads;
+    }
+
+    public boolean isNativeTransport() {
+        return nativeTransport;
+    }
+
+    /**
+     * Dedicated event loops of the client, native epoll transport is used when available and enabled.
+     * Defaults to the number of processors and native transport.
+     */
+    public GithubClientConfiguration withEventLoops(int eventLoopThreads, boolean nativeTransport) {
+        this.eventLoopThreads = eventLoopThreads;
+        this.nativeTransport = nativeTransport;
+        return this;
+    }
+
+    public boolean isCompression() {
+        return compression;
+    }
+
+    /**
+     * Requests gzip compressed responses, they are decompressed while streamed to the decoder.
+     */
+    public GithubClientConfiguration withCompression(boolean compression) {
+        this.compression = compression;
+        return this;
+    }
+
+    @Nullable
+    public MetricRegistry getMetricRegistry() {
+        return metricRegistry;
+    }
+
+    /**
+     * Registry receiving request metrics of the client, a new registry is created when not set.
+     */
+    public GithubClientConfiguration withMetricRegistry(MetricRegistry metricRegistry) {
+        this.metricRegistry = metricRegistry;
+        return this;
+    }
+
+    public boolean isJmxReporting() {
+        return jmxReporting;
+    }
+
+    /**
+     * Publishes request metrics as JMX beans in the metrics domain.
+     */
+    public GithubClientConfiguration withJmxReporting(boolean jmxReporting) {
+        this.jmxReporting = jmxReporting;
+        return this;
+    }
+
+    @Nullable
+    public Path getCsvReportDirectory() {
+        return csvReportDirectory;
+    }
+
+    public Duration getCsvReportPeriod() {
+        return csvReportPeriod;
+    }
+
+    /**
+     * Appends request metrics to one CSV file per metric in the directory every period.
+     */
+    public GithubClientConfiguration withCsvReporting(Path directory, Duration period) {
+        this.csvReportDirectory = directory;
+        this.csvReportPeriod = period;
+        return this;
+    }
+
+    public boolean isRequestLogging() {
+        return requestLogging;
+    }
+
+    /**
+     * Logs start and end of every request on INFO level, enabled by default.
+     */
+    public GithubClientConfiguration withRequestLogging(boolean requestLogging) {
+        this.requestLogging = requestLogging;
+        return this;
+    }
+
+    public double getHedgePercentile() {
+        return hedgePercentile;
+    }
+
+    public double getHedgeBudgetRatio() {
+        return hedgeBudgetRatio;
+    }
+
+    /**
+     * Hedges GET requests which have not responded within the percentile of recent response times,
+     * e.g. 95. At most budget ratio of requests is duplicated, e.g. 0.05. Disabled by default.
+     */
+    public GithubClientConfiguration withHedging(double percentile, double budgetRatio) {
+        this.hedgePercentile = percentile;
+        this.hedgeBudgetRatio = budgetRatio;
+        return this;
+    }
 }
@@ -0,0 +1,37 @@
+package net.voldrich.webclient.test;
+
+import org.springframework.http.codec.json.Jackson2JsonDecoder;
+import org.springframework.http.codec.json.Jackson2JsonEncoder;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+import org.springframework.web.reactive.function.client.ExchangeStrategies;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+
+/**
+ * Jackson configuration used by the WebClient codecs.
+ */
+public final class GithubCodecs {
+
+    private GithubCodecs() {
+    }
+
+    public static ObjectMapper createObjectMapper(GithubClientConfiguration config) {
+        ObjectMapper objectMapper = Jackson2ObjectMapperBuilder.json().build();
+        objectMapper.registerModule(GithubDates.module());
+        if (!config.getProjections().isEmpty() || config.isLeanDecoding()) {
+            objectMapper.registerModule(new SimpleModule("FieldProjection")
+                    .setDeserializerModifier(new FieldProjection(config.getProjections(), config.isLeanDecoding())));
+        }
+        return objectMapper;
+    }
+
+    public static ExchangeStrategies createExchangeStrategies(ObjectMapper objectMapper) {
+        return ExchangeStrategies.builder()
+                .codecs(codecs -> {
+                    codecs.defaultCodecs().jackson2JsonDecoder(new Jackson2JsonDecoder(objectMapper));
+                    codecs.defaultCodecs().jackson2JsonEncoder(new Jackson2JsonEncoder(objectMapper));
+                })
+                .build();
+    }
+}
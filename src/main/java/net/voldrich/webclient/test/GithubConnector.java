@@ -0,0 +1,81 @@
+package net.voldrich.webclient.test;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.client.reactive.ClientHttpConnector;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+import reactor.netty.resources.LoopResources;
+
+/**
+ * Reactor netty resources owned by one client: dedicated connection pool and event loops, native epoll
+ * transport is used when available and enabled. Resources are released by {@link #dispose()}.
+ * <p>
+ * With compression enabled gzip encoding is requested, gzip or deflate bodies are inflated chunk by chunk
+ * in the pipeline and streamed into the JSON decoder.
+ * <p>
+ * Pool acquire and time to first byte of every request are recorded into {@link LatencyHistograms}.
+ */
+public class GithubConnector {
+
+    private static final Logger logger = LoggerFactory.getLogger(GithubConnector.class);
+
+    private final ConnectionProvider connectionProvider;
+
+    private final LoopResources loopResources;
+
+    private final TransferStatistics transferStatistics = new TransferStatistics();
+
+    private final LatencyHistograms latencyHistograms = new LatencyHistograms();
+
+    private final HttpClient httpClient;
+
+    public GithubConnector(GithubClientConfiguration config) {
+        this.connectionProvider = ConnectionProvider.builder("github")
+                .maxConnections(config.getMaxConnections())
+                .pendingAcquireMaxCount(config.getPendingAcquireMaxCount())
+                .pendingAcquireTimeout(config.getPendingAcquireTimeout())
+                .maxIdleTime(config.getMaxIdleTime())
+                .build();
+        this.loopResources = LoopResources.create("github-http", config.getEventLoopThreads(), true);
+        boolean preferNative = config.isNativeTransport() && LoopResources.hasNativeSupport();
+        logger.info("Using {} transport, {} event loop threads, {} connections", preferNative ? "native" : "NIO",
+                config.getEventLoopThreads(), config.getMaxConnections());
+        this.httpClient = HttpClient.create(connectionProvider)
+                .tcpConfiguration(tcpClient -> tcpClient.runOn(loopResources, preferNative))
+                .compress(config.isCompression())
+                .doOnRequest((request, connection) -> {
+                    transferStatistics.install(connection.channel().pipeline());
+                    latencyHistograms.connectionAcquired(request.currentContext());
+                })
+                .doAfterRequest((request, connection) -> latencyHistograms.requestSent(request.currentContext()))
+                .doOnResponse((response, connection) -> latencyHistograms.responseReceived(response.currentContext()));
+    }
+
+    public ClientHttpConnector createConnector() {
+        return new ReactorClientHttpConnector(httpClient);
+    }
+
+    public HttpClient getHttpClient() {
+        return httpClient;
+    }
+
+    public TransferStatistics getTransferStatistics() {
+        return transferStatistics;
+    }
+
+    public LatencyHistograms getLatencyHistograms() {
+        return latencyHistograms;
+    }
+
+    public ConnectionProvider getConnectionProvider() {
+        return connectionProvider;
+    }
+
+    public void dispose() {
+        connectionProvider.dispose();
+        loopResources.dispose();
+    }
+}
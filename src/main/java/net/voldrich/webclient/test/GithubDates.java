@@ -0,0 +1,263 @@
+package net.voldrich.webclient.test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.time.OffsetDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Date;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.deser.std.StdScalarDeserializer;
+import com.fasterxml.jackson.databind.module.SimpleModule;
+import com.fasterxml.jackson.databind.ser.std.StdScalarSerializer;
+
+/**
+ * Thread safe parser and formatter of github timestamps in fixed {@link GithubClient#DATE_PATTERN} format,
+ * e.g. 2011-01-26T19:01:12Z. Timestamps are parsed directly from the parser buffer by digit arithmetic,
+ * other ISO-8601 forms fall back to {@link DateTimeFormatter#ISO_OFFSET_DATE_TIME}. Dates which do not exist,
+ * e.g. 2020-02-30, are rejected rather than rolled over.
+ */
+public final class GithubDates {
+
+    private static final int LENGTH = 20;
+
+    private static final long MILLIS_PER_DAY = 86_400_000L;
+
+    private GithubDates() {
+    }
+
+    /**
+     * Jackson module replacing {@link Date} and {@link Instant} codecs, {@code @JsonFormat} patterns
+     * of DTO fields are not used by this module.
+     */
+    public static SimpleModule module() {
+        return new SimpleModule("GithubDates")
+                .addDeserializer(Date.class, new DateDeserializer())
+                .addSerializer(Date.class, new DateSerializer())
+                .addDeserializer(Instant.class, new InstantDeserializer())
+                .addSerializer(Instant.class, new InstantSerializer());
+    }
+
+    public static long parseEpochMillis(CharSequence value) {
+        if (value.length() != LENGTH) {
+            return parseIso(value.toString());
+        }
+        char[] chars = new char[LENGTH];
+        for (int i = 0; i < LENGTH; i++) {
+            chars[i] = value.charAt(i);
+        }
+        return parseEpochMillis(chars, 0, LENGTH);
+    }
+
+    public static long parseEpochMillis(char[] buffer, int offset, int length) {
+        if (length != LENGTH
+                || buffer[offset + 4] != '-' || buffer[offset + 7] != '-' || buffer[offset + 10] != 'T'
+                || buffer[offset + 13] != ':' || buffer[offset + 16] != ':' || buffer[offset + 19] != 'Z') {
+            return parseIso(new String(buffer, offset, length));
+        }
+        int year = digits(buffer, offset, 4);
+        int month = digits(buffer, offset + 5, 2);
+        int day = digits(buffer, offset + 8, 2);
+        int hour = digits(buffer, offset + 11, 2);
+        int minute = digits(buffer, offset + 14, 2);
+        int second = digits(buffer, offset + 17, 2);
+        if (year < 0 || month < 1 || month > 12 || day < 1 || day > lengthOfMonth(year, month)
+                || hour < 0 || hour > 23 || minute < 0 || minute > 59 || second < 0 || second > 59) {
+            throw new IllegalArgumentException("Invalid date " + new String(buffer, offset, length));
+        }
+        return daysFromCivil(year, month, day) * MILLIS_PER_DAY + (hour * 3600 + minute * 60 + second) * 1000L;
+    }
+
+    public static Date parseDate(CharSequence value) {
+        return new Date(parseEpochMillis(value));
+    }
+
+    public static Instant parseInstant(CharSequence value) {
+        return Instant.ofEpochMilli(parseEpochMillis(value));
+    }
+
+    public static String format(long epochMillis) {
+        return new String(formatChars(epochMillis));
+    }
+
+    public static String format(Date date) {
+        return format(date.getTime());
+    }
+
+    /**
+     * Formats to seconds precision, milliseconds are truncated.
+     */
+    private static char[] formatChars(long epochMillis) {
+        long days = Math.floorDiv(epochMillis, MILLIS_PER_DAY);
+        int secondOfDay = (int) (Math.floorMod(epochMillis, MILLIS_PER_DAY) / 1000);
+
+        // civil from days, http://howardhinnant.github.io/date_algorithms.html
+        long z = days + 719468;
+        long era = (z >= 0 ? z : z - 146096) / 146097;
+        int dayOfEra = (int) (z - era * 146097);
+        int yearOfEra = (dayOfEra - dayOfEra / 1460 + dayOfEra / 36524 - dayOfEra / 146096) / 365;
+        int dayOfYear = dayOfEra - (365 * yearOfEra + yearOfEra / 4 - yearOfEra / 100);
+        int shiftedMonth = (5 * dayOfYear + 2) / 153;
+        int day = dayOfYear - (153 * shiftedMonth + 2) / 5 + 1;
+        int month = shiftedMonth < 10 ? shiftedMonth + 3 : shiftedMonth - 9;
+        int year = (int) (yearOfEra + era * 400) + (month <= 2 ? 1 : 0);
+
+        char[] chars = new char[LENGTH];
+        putDigits(chars, 0, year, 4);
+        chars[4] = '-';
+        putDigits(chars, 5, month, 2);
+        chars[7] = '-';
+        putDigits(chars, 8, day, 2);
+        chars[10] = 'T';
+        putDigits(chars, 11, secondOfDay / 3600, 2);
+        chars[13] = ':';
+        putDigits(chars, 14, secondOfDay / 60 % 60, 2);
+        chars[16] = ':';
+        putDigits(chars, 17, secondOfDay % 60, 2);
+        chars[19] = 'Z';
+        return chars;
+    }
+
+    private static int lengthOfMonth(int year, int month) {
+        switch (month) {
+            case 2:
+                return year % 4 == 0 && (year % 100 != 0 || year % 400 == 0) ? 29 : 28;
+            case 4:
+            case 6:
+            case 9:
+            case 11:
+                return 30;
+            default:
+                return 31;
+        }
+    }
+
+    private static long daysFromCivil(int year, int month, int day) {
+        int y = month <= 2 ? year - 1 : year;
+        int era = (y >= 0 ? y : y - 399) / 400;
+        int yearOfEra = y - era * 400;
+        int dayOfYear = (153 * (month > 2 ? month - 3 : month + 9) + 2) / 5 + day - 1;
+        int dayOfEra = yearOfEra * 365 + yearOfEra / 4 - yearOfEra / 100 + dayOfYear;
+        return era * 146097L + dayOfEra - 719468;
+    }
+
+    private static int digits(char[] buffer, int offset, int count) {
+        int value = 0;
+        for (int i = offset; i < offset + count; i++) {
+            int digit = buffer[i] - '0';
+            if (digit < 0 || digit > 9) {
+                return -1;
+            }
+            value = value * 10 + digit;
+        }
+        return value;
+    }
+
+    private static void putDigits(char[] chars, int offset, int value, int count) {
+        for (int i = offset + count - 1; i >= offset; i--) {
+            chars[i] = (char) ('0' + value % 10);
+            value /= 10;
+        }
+    }
+
+    private static long parseIso(String value) {
+        try {
+            return OffsetDateTime.parse(value, DateTimeFormatter.ISO_OFFSET_DATE_TIME).toInstant().toEpochMilli();
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Invalid date " + value, e);
+        }
+    }
+
+    private static long readEpochMillis(JsonParser p, DeserializationContext ctxt, Class<?> type) throws IOException {
+        if (p.hasToken(JsonToken.VALUE_NUMBER_INT)) {
+            return p.getLongValue();
+        }
+        if (!p.hasToken(JsonToken.VALUE_STRING)) {
+            // problem handlers may resolve the token to any value
+            Object value = ctxt.handleUnexpectedToken(type, p);
+            if (value instanceof Number) {
+                return ((Number) value).longValue();
+            } else if (value instanceof Date) {
+                return ((Date) value).getTime();
+            } else if (value instanceof Instant) {
+                return ((Instant) value).toEpochMilli();
+            }
+            return ctxt.<Long>reportInputMismatch(type, "Expected github timestamp or epoch millis, got %s",
+                    p.getCurrentToken());
+        }
+        try {
+            return parseEpochMillis(p.getTextCharacters(), p.getTextOffset(), p.getTextLength());
+        } catch (IllegalArgumentException e) {
+            throw ctxt.weirdStringException(p.getText(), type, e.getMessage());
+        }
+    }
+
+    public static class DateDeserializer extends StdScalarDeserializer<Date> {
+
+        public DateDeserializer() {
+            super(Date.class);
+        }
+
+        @Override
+        public Date deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return new Date(readEpochMillis(p, ctxt, Date.class));
+        }
+    }
+
+    public static class InstantDeserializer extends StdScalarDeserializer<Instant> {
+
+        public InstantDeserializer() {
+            super(Instant.class);
+        }
+
+        @Override
+        public Instant deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return Instant.ofEpochMilli(readEpochMillis(p, ctxt, Instant.class));
+        }
+    }
+
+    /**
+     * Decodes github timestamp into epoch millis, use with {@code @JsonDeserialize(using = ...)}
+     * on long fields.
+     */
+    public static class EpochMillisDeserializer extends StdScalarDeserializer<Long> {
+
+        public EpochMillisDeserializer() {
+            super(Long.class);
+        }
+
+        @Override
+        public Long deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            return readEpochMillis(p, ctxt, Long.class);
+        }
+    }
+
+    public static class DateSerializer extends StdScalarSerializer<Date> {
+
+        public DateSerializer() {
+            super(Date.class);
+        }
+
+        @Override
+        public void serialize(Date value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(formatChars(value.getTime()), 0, LENGTH);
+        }
+    }
+
+    public static class InstantSerializer extends StdScalarSerializer<Instant> {
+
+        public InstantSerializer() {
+            super(Instant.class);
+        }
+
+        @Override
+        public void serialize(Instant value, JsonGenerator gen, SerializerProvider provider) throws IOException {
+            gen.writeString(formatChars(value.toEpochMilli()), 0, LENGTH);
+        }
+    }
+}
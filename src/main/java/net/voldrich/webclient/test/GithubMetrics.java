@@ -0,0 +1,183 @@
+package net.voldrich.webclient.test;
+
+import java.io.File;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import com.codahale.metrics.Counter;
+import com.codahale.metrics.CsvReporter;
+import com.codahale.metrics.Gauge;
+import com.codahale.metrics.JmxReporter;
+import com.codahale.metrics.Meter;
+import com.codahale.metrics.Metric;
+import com.codahale.metrics.MetricRegistry;
+import com.codahale.metrics.Timer;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * Request metrics of the client: latency timer per endpoint template, meter per response status, error meter
+ * and counter of requests in flight. Timers measure from the exchange reaching {@link #filter()} to the
+ * response headers, so they exclude the wait for a permit of the request pacer and for a token of the pool,
+ * which happen before, and include connection acquire and the round trip.
+ * <p>
+ * Endpoint is the URI template of the request passed in the subscriber context by {@link #uriTemplate(String)},
+ * pages following a Link header are reported under the template of the first page. E.g. {@code /users/{name}}
+ * is reported as {@code github.requests.users.name}, requests without a template as {@code github.requests.other}.
+ * <p>
+ * Every client uses its own name prefix, {@code github} for the first client of a registry, then
+ * {@code github-1}, {@code github-2} and so on. Metrics of the client are removed by {@link #close()}.
+ */
+public class GithubMetrics {
+
+    public static final String PREFIX = "github";
+
+    private static final String URI_TEMPLATE_KEY = GithubMetrics.class.getName() + ".uriTemplate";
+
+    private final MetricRegistry registry;
+
+    private final String prefix;
+
+    private final ConcurrentMap<String, Timer> endpoints = new ConcurrentHashMap<>();
+
+    private final Timer otherEndpoint;
+
+    private final Counter inFlight;
+
+    private final Meter errors;
+
+    private final List<AutoCloseable> reporters = new ArrayList<>();
+
+    public GithubMetrics(MetricRegistry registry) {
+        this.registry = registry;
+        synchronized (registry) {
+            this.prefix = claimPrefix(registry);
+            this.otherEndpoint = registry.timer(name("requests", "other"));
+            this.inFlight = registry.counter(name("requests", "inFlight"));
+            this.errors = registry.meter(name("responses", "errors"));
+        }
+    }
+
+    private static String claimPrefix(MetricRegistry registry) {
+        for (int i = 0; ; i++) {
+            String candidate = i == 0 ? PREFIX : PREFIX + "-" + i;
+            if (registry.getNames().stream().noneMatch(name -> name.startsWith(candidate + "."))) {
+                return candidate;
+            }
+        }
+    }
+
+    private String name(String... names) {
+        return MetricRegistry.name(prefix, names);
+    }
+
+    /**
+     * Subscriber context of requests to the given endpoint, requests of the subscriber are timed
+     * under the template.
+     */
+    public static Context uriTemplate(String uriTemplate) {
+        return Context.of(URI_TEMPLATE_KEY, uriTemplate);
+    }
+
+    /**
+     * e.g. /repos/{owner}/{repo}/contributors to repos.owner.repo.contributors
+     */
+    private static String toMetricName(String pathTemplate) {
+        StringBuilder name = new StringBuilder(pathTemplate.length());
+        for (int i = 0; i < pathTemplate.length(); i++) {
+            char c = pathTemplate.charAt(i);
+            if (c == '/') {
+                if (name.length() > 0) {
+                    name.append('.');
+                }
+            } else if (c != '{' && c != '}') {
+                name.append(c);
+            }
+        }
+        return name.toString();
+    }
+
+    public ExchangeFilterFunction filter() {
+        return (clientRequest, exchangeFunction) -> Mono.subscriberContext().flatMap(context -> {
+            Timer timer = timer(context.getOrDefault(URI_TEMPLATE_KEY, null));
+            long start = System.nanoTime();
+            inFlight.inc();
+            return exchangeFunction.exchange(clientRequest)
+                    .doOnNext(clientResponse -> {
+                        timer.update(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+                        registry.meter(name("responses", String.valueOf(clientResponse.rawStatusCode()))).mark();
+                    })
+                    .doOnError(throwable -> errors.mark())
+                    .doFinally(signalType -> inFlight.dec());
+        });
+    }
+
+    private Timer timer(@Nullable String uriTemplate) {
+        if (uriTemplate == null) {
+            return otherEndpoint;
+        }
+        return endpoints.computeIfAbsent(uriTemplate,
+                template -> registry.timer(name("requests", toMetricName(template))));
+    }
+
+    public <T> void registerGauge(String name, Gauge<T> gauge) {
+        registry.register(name(name), gauge);
+    }
+
+    public void startJmxReporter() {
+        JmxReporter reporter = JmxReporter.forRegistry(registry)
+                .filter(this::isOwnMetric)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build();
+        reporter.start();
+        reporters.add(reporter::stop);
+    }
+
+    public void startCsvReporter(File directory, Duration period) {
+        CsvReporter reporter = CsvReporter.forRegistry(registry)
+                .filter(this::isOwnMetric)
+                .convertDurationsTo(TimeUnit.MILLISECONDS)
+                .build(directory);
+        reporter.start(period.toMillis(), TimeUnit.MILLISECONDS);
+        reporters.add(reporter::stop);
+    }
+
+    /**
+     * Stops reporters and removes metrics of the client from the registry.
+     */
+    public void close() {
+        for (AutoCloseable reporter : reporters) {
+            try {
+                reporter.close();
+            } catch (Exception e) {
+                throw new IllegalStateException(e);
+            }
+        }
+        reporters.clear();
+        endpoints.clear();
+        registry.removeMatching(this::isOwnMetric);
+    }
+
+    private boolean isOwnMetric(String name, Metric metric) {
+        return name.startsWith(prefix + ".");
+    }
+
+    public MetricRegistry getRegistry() {
+        return registry;
+    }
+
+    /**
+     * @return name prefix of metrics of the client
+     */
+    public String getPrefix() {
+        return prefix;
+    }
+}
@@ -0,0 +1,35 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+
+/**
+ * Request was rejected by primary or secondary (abuse) rate limit, it may be retried after given time.
+ */
+public class GithubRateLimitException extends GithubClientException {
+
+    private final Duration retryAfter;
+
+    private final boolean clientWide;
+
+    public GithubRateLimitException(String s, Duration retryAfter) {
+        this(s, retryAfter, true);
+    }
+
+    public GithubRateLimitException(String s, Duration retryAfter, boolean clientWide) {
+        super(s);
+        this.retryAfter = retryAfter;
+        this.clientWide = clientWide;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+
+    /**
+     * @return true when all requests of the client should wait, false when only the access token
+     * of the request is exhausted
+     */
+    public boolean isClientWide() {
+        return clientWide;
+    }
+}
@@ -2,41 +2,76 @@ package net.voldrich.webclient.test;
 
 import java.net.URI;
 import java.util.Set;
-import java.util.regex.Matcher;
-import java.util.regex.Pattern;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.annotation.Nullable;
 
 import org.springframework.http.HttpHeaders;
 import org.springframework.web.reactive.function.client.ClientResponse;
-import org.springframework.web.util.UriBuilderFactory;
 
 import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
 
 public class GithubResponseWrapper<T> {
 
-    private static final Pattern LAST_PAGE_PATTERN = Pattern.compile("[\\?&]page=([0-9]*)");
-
     private ClientResponse response;
 
     private ClientResponse.Headers headers;
 
     private Class<T> clazz;
 
+    private PageLinks pageLinks;
+
+    @Nullable
+    private LatencyHistograms latencyHistograms;
+
+    private final AtomicBoolean bodyTaken = new AtomicBoolean();
+
     public GithubResponseWrapper(ClientResponse clientResponse, Class<T> clazz) {
+        this(clientResponse, clazz, null);
+    }
+
+    public GithubResponseWrapper(ClientResponse clientResponse, Class<T> clazz,
+                                 @Nullable LatencyHistograms latencyHistograms) {
         this.response = clientResponse;
         this.headers = clientResponse.headers();
         this.clazz = clazz;
+        this.latencyHistograms = latencyHistograms;
     }
 
     public Flux<T> getData() {
-        return response.bodyToFlux(clazz);
+        Flux<T> data = response.bodyToFlux(clazz)
+                .doOnSubscribe(subscription -> bodyTaken.set(true));
+        return latencyHistograms != null ? latencyHistograms.recordBody(data) : data;
+    }
+
+    /**
+     * Releases body of a response which is not going to be read. Does nothing once the body is being read,
+     * its reader releases it.
+     *
+     * @return true when the body was released by this call
+     */
+    public boolean release() {
+        if (bodyTaken.compareAndSet(false, true)) {
+            response.releaseBody().subscribe();
+            return true;
+        }
+        return false;
     }
 
     public Set<Link> getLinks() {
         return Link.parseLinks(headers.header(HttpHeaders.LINK));
     }
 
-    public Flux<Link> getNextLink() {
-        return getLinkWithRelName("next");
+    public PageLinks getPageLinks() {
+        if (pageLinks == null) {
+            pageLinks = PageLinks.parse(headers.header(HttpHeaders.LINK));
+        }
+        return pageLinks;
+    }
+
+    public Mono<URI> getNextUri() {
+        return Mono.justOrEmpty(getPageLinks().getNextUri());
     }
 
     public Flux<Link> getLinkWithRelName(String name) {
@@ -44,25 +79,28 @@ public class GithubResponseWrapper<T> {
                 .filter(link -> link.getRel().equalsIgnoreCase(name));
     }
 
+    /**
+     * @return page number of the last page, 1 when response has no last page link
+     */
+    public int getLastPageNumber() {
+        String last = getPageLinks().getLast();
+        return last != null ? CompiledUriTemplate.getPageNumber(last) : 1;
+    }
+
     /**
      * Derives URI's of all pages from last page URI by generating a sequence of URI's
-     * with page numbers from 1 to last page number.
+     * with page numbers from 2 to last page number. Page template is compiled once from the last link.
      */
-    public Flux<URI> getAllPageUri(int pagesLimit, UriBuilderFactory builderFactory) {
-        return getLinkWithRelName("last").flatMap(link -> {
-            String last = link.getUri().toString();
-            Matcher m = LAST_PAGE_PATTERN.matcher(last);
-            if (m.find()) {
-                String paramWithValue = m.group(0);
-                int lastPageNumber = Integer.parseInt(m.group(1));
-                String pageTemplate = last.replace(paramWithValue,
-                        paramWithValue.replace(String.valueOf(lastPageNumber), "{page}"));
-
-                return Flux.range(2, Math.min(lastPageNumber, pagesLimit) - 1)
-                        .map(pageNumber -> builderFactory.uriString(pageTemplate).build(pageNumber));
-            } else {
-                throw new RuntimeException("Failed to parse last page link");
-            }
+    public Flux<URI> getAllPageUri(int pagesLimit) {
+        String last = getPageLinks().getLast();
+        if (last == null) {
+            return Flux.empty();
+        }
+        return Flux.defer(() -> {
+            CompiledUriTemplate pageTemplate = CompiledUriTemplate.ofPageLink(last);
+            int lastPageNumber = CompiledUriTemplate.getPageNumber(last);
+            return Flux.range(2, Math.max(0, Math.min(lastPageNumber, pagesLimit) - 1))
+                    .map(pageTemplate::expand);
         });
     }
 }
@@ -0,0 +1,85 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.util.Objects;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Supplier;
+
+import reactor.core.publisher.Flux;
+
+/**
+ * Registry of GET requests currently in flight. Concurrent subscribers to the same URI share one exchange
+ * and one decoded result, the entry is removed as soon as the shared request terminates or is cancelled
+ * by all of its subscribers.
+ */
+public class InFlightRequests {
+
+    private final ConcurrentMap<Key, Flux<?>> inFlight = new ConcurrentHashMap<>();
+
+    private final LongAdder coalescedCount = new LongAdder();
+
+    @SuppressWarnings("unchecked")
+    public <T> Flux<T> share(URI uri, Class<T> clazz, Supplier<Flux<T>> request) {
+        return Flux.defer(() -> {
+            Key key = new Key(uri, clazz);
+            AtomicReference<Flux<T>> created = new AtomicReference<>();
+            Flux<T> shared = (Flux<T>) inFlight.computeIfAbsent(key, k -> {
+                AtomicReference<Flux<T>> self = new AtomicReference<>();
+                Flux<T> flux = request.get()
+                        .doFinally(signalType -> inFlight.remove(k, self.get()))
+                        .replay()
+                        .refCount();
+                self.set(flux);
+                created.set(flux);
+                return flux;
+            });
+            if (created.get() == null) {
+                coalescedCount.increment();
+            }
+            return shared;
+        });
+    }
+
+    /**
+     * Number of requests which were served by joining an already running exchange.
+     */
+    public long getCoalescedCount() {
+        return coalescedCount.longValue();
+    }
+
+    public int size() {
+        return inFlight.size();
+    }
+
+    private static class Key {
+
+        private final URI uri;
+
+        private final Class<?> clazz;
+
+        Key(URI uri, Class<?> clazz) {
+            this.uri = uri;
+            this.clazz = clazz;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) {
+                return true;
+            }
+            if (!(o instanceof Key)) {
+                return false;
+            }
+            Key key = (Key) o;
+            return uri.equals(key.uri) && clazz.equals(key.clazz);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(uri, clazz);
+        }
+    }
+}
@@ -0,0 +1,35 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Size bounded in-memory response store.
+ */
+public class InMemoryResponseStore implements ResponseStore {
+
+    private final Cache<URI, CachedResponse> responses;
+
+    public InMemoryResponseStore(int maximumSize) {
+        this.responses = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    @Override
+    public CachedResponse get(URI uri) {
+        return responses.getIfPresent(uri);
+    }
+
+    @Override
+    public void put(URI uri, CachedResponse response) {
+        responses.put(uri, response);
+    }
+
+    @Override
+    public long size() {
+        return responses.size();
+    }
+}
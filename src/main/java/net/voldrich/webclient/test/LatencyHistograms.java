@@ -0,0 +1,120 @@
+package net.voldrich.webclient.test;
+
+import java.util.EnumMap;
+import java.util.Map;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.util.context.Context;
+
+/**
+ * High dynamic range histograms of request latency split into phases. Writers record into wait-free
+ * HdrHistogram recorders, readers fold recorded intervals into histograms accumulated since creation.
+ * <p>
+ * Pool acquire and time to first byte are measured in the netty pipeline, timing of a request is passed
+ * there in the subscriber context by {@link #filter()}.
+ */
+public class LatencyHistograms {
+
+    private static final int SIGNIFICANT_DIGITS = 3;
+
+    public enum Phase {
+        /**
+         * Wait for a permit of the request pacer.
+         */
+        LIMITER_WAIT,
+        /**
+         * From exchange subscription to connection acquired from the pool, includes connect and TLS
+         * handshake of new connections.
+         */
+        POOL_ACQUIRE,
+        /**
+         * From request sent to response headers received.
+         */
+        TIME_TO_FIRST_BYTE,
+        /**
+         * From subscription to the response body to its last decoded element.
+         */
+        BODY_DECODE,
+    }
+
+    private final Map<Phase, Recorder> recorders = new EnumMap<>(Phase.class);
+
+    private final Map<Phase, Histogram> accumulated = new EnumMap<>(Phase.class);
+
+    public LatencyHistograms() {
+        for (Phase phase : Phase.values()) {
+            recorders.put(phase, new Recorder(SIGNIFICANT_DIGITS));
+            accumulated.put(phase, new Histogram(SIGNIFICANT_DIGITS));
+        }
+    }
+
+    public void record(Phase phase, long nanos) {
+        recorders.get(phase).recordValue(Math.max(0, nanos));
+    }
+
+    /**
+     * Starts timing of a request, it has to be the last filter so that its subscription is followed
+     * directly by the connection acquire.
+     */
+    public ExchangeFilterFunction filter() {
+        return (clientRequest, exchangeFunction) -> exchangeFunction.exchange(clientRequest)
+                .subscriberContext(context -> context.put(RequestTiming.class, new RequestTiming(System.nanoTime())));
+    }
+
+    /**
+     * Times body decoding of a response.
+     */
+    public <T> Flux<T> recordBody(Flux<T> body) {
+        return Flux.defer(() -> {
+            long start = System.nanoTime();
+            return body.doOnComplete(() -> record(Phase.BODY_DECODE, System.nanoTime() - start));
+        });
+    }
+
+    public <T> Mono<T> recordBody(Mono<T> body) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            return body.doOnSuccess(value -> record(Phase.BODY_DECODE, System.nanoTime() - start));
+        });
+    }
+
+    void connectionAcquired(Context context) {
+        context.<RequestTiming>getOrEmpty(RequestTiming.class)
+                .ifPresent(timing -> record(Phase.POOL_ACQUIRE, System.nanoTime() - timing.start));
+    }
+
+    void requestSent(Context context) {
+        context.<RequestTiming>getOrEmpty(RequestTiming.class)
+                .ifPresent(timing -> timing.sent = System.nanoTime());
+    }
+
+    void responseReceived(Context context) {
+        context.<RequestTiming>getOrEmpty(RequestTiming.class)
+                .filter(timing -> timing.sent != 0)
+                .ifPresent(timing -> record(Phase.TIME_TO_FIRST_BYTE, System.nanoTime() - timing.sent));
+    }
+
+    public LatencySnapshot getSnapshot(Phase phase) {
+        Histogram histogram = accumulated.get(phase);
+        synchronized (histogram) {
+            histogram.add(recorders.get(phase).getIntervalHistogram());
+            return new LatencySnapshot(histogram);
+        }
+    }
+
+    private static class RequestTiming {
+
+        private final long start;
+
+        private volatile long sent;
+
+        RequestTiming(long start) {
+            this.start = start;
+        }
+    }
+}
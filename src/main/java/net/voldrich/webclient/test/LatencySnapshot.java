@@ -0,0 +1,64 @@
+package net.voldrich.webclient.test;
+
+import java.util.concurrent.TimeUnit;
+
+import org.HdrHistogram.Histogram;
+
+/**
+ * Percentiles of one latency phase recorded since the client was created, values are in nanoseconds.
+ */
+public class LatencySnapshot {
+
+    private final long count;
+
+    private final long p50;
+
+    private final long p99;
+
+    private final long p999;
+
+    private final long max;
+
+    LatencySnapshot(Histogram histogram) {
+        this.count = histogram.getTotalCount();
+        this.p50 = histogram.getValueAtPercentile(50);
+        this.p99 = histogram.getValueAtPercentile(99);
+        this.p999 = histogram.getValueAtPercentile(99.9);
+        this.max = histogram.getMaxValue();
+    }
+
+    public long getCount() {
+        return count;
+    }
+
+    public long getP50() {
+        return p50;
+    }
+
+    public long getP99() {
+        return p99;
+    }
+
+    public long getP999() {
+        return p999;
+    }
+
+    public long getMax() {
+        return max;
+    }
+
+    @Override
+    public String toString() {
+        return "LatencySnapshot{" +
+                "count=" + count +
+                ", p50=" + toMillis(p50) +
+                " ms, p99=" + toMillis(p99) +
+                " ms, p99.9=" + toMillis(p999) +
+                " ms, max=" + toMillis(max) +
+                " ms}";
+    }
+
+    private static double toMillis(long nanos) {
+        return (double) nanos / TimeUnit.MILLISECONDS.toNanos(1);
+    }
+}
@@ -0,0 +1,82 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+
+/**
+ * Size bounded store of last page links seen per first page URI. Parallel paging uses the remembered
+ * link to request expected pages together with the first page, before its Link header is known.
+ */
+public class PageCountStore {
+
+    private final Cache<URI, String> lastLinks;
+
+    private final LongAdder hitCount = new LongAdder();
+
+    private final LongAdder droppedPageCount = new LongAdder();
+
+    public PageCountStore(int maximumSize) {
+        this.lastLinks = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    /**
+     * @return last page link seen for the first page URI, null when unknown or the endpoint had a single page
+     */
+    @Nullable
+    public String getLastLink(URI firstPageUri) {
+        String lastLink = lastLinks.getIfPresent(firstPageUri);
+        if (lastLink != null) {
+            hitCount.increment();
+        }
+        return lastLink;
+    }
+
+    /**
+     * @return remembered page count of the endpoint, zero when unknown
+     */
+    public int getPageCount(URI firstPageUri) {
+        String lastLink = lastLinks.getIfPresent(firstPageUri);
+        return lastLink != null ? Math.max(0, CompiledUriTemplate.getPageNumber(lastLink)) : 0;
+    }
+
+    /**
+     * Remembers last page link of a multi page endpoint. Link without page parameter is not remembered,
+     * its page count is unknown.
+     */
+    public void update(URI firstPageUri, @Nullable String lastLink) {
+        if (lastLink != null && CompiledUriTemplate.getPageNumber(lastLink) > 1) {
+            lastLinks.put(firstPageUri, lastLink);
+        } else {
+            lastLinks.invalidate(firstPageUri);
+        }
+    }
+
+    void pageDropped() {
+        droppedPageCount.increment();
+    }
+
+    /**
+     * Number of crawls which requested expected pages without waiting for the first page.
+     */
+    public long getHitCount() {
+        return hitCount.longValue();
+    }
+
+    /**
+     * Number of expected pages which turned out to be past the last page and were dropped.
+     */
+    public long getDroppedPageCount() {
+        return droppedPageCount.longValue();
+    }
+
+    public long size() {
+        return lastLinks.size();
+    }
+}
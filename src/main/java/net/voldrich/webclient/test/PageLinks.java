@@ -0,0 +1,176 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+/**
+ * Paging links of a github response. Link header is scanned in a single pass, only first, prev, next
+ * and last relations are kept as offsets into the header value, URI strings are created on demand.
+ * <p>
+ * Example of the header:
+ * {@code <https://api.github.com/repositories/31533997/contributors?per_page=10&page=2>; rel="next",
+ * <https://api.github.com/repositories/31533997/contributors?per_page=10&page=10>; rel="last"}
+ */
+public class PageLinks {
+
+    public static final PageLinks EMPTY = new PageLinks("");
+
+    private static final String[] RELATIONS = {"first", "prev", "next", "last"};
+
+    private static final int FIRST = 0;
+
+    private static final int PREV = 1;
+
+    private static final int NEXT = 2;
+
+    private static final int LAST = 3;
+
+    private final String header;
+
+    // start and end offset of link URI per relation, start is -1 for missing link
+    private final int[] offsets = {-1, 0, -1, 0, -1, 0, -1, 0};
+
+    private PageLinks(String header) {
+        this.header = header;
+    }
+
+    public static PageLinks parse(@Nullable List<String> headerValues) {
+        if (headerValues == null || headerValues.isEmpty()) {
+            return EMPTY;
+        }
+        return parse(headerValues.size() == 1 ? headerValues.get(0) : String.join(",", headerValues));
+    }
+
+    public static PageLinks parse(@Nullable String header) {
+        if (header == null || header.isEmpty()) {
+            return EMPTY;
+        }
+        PageLinks links = new PageLinks(header);
+        int length = header.length();
+        int position = 0;
+        while (position < length) {
+            int uriStart = header.indexOf('<', position);
+            if (uriStart < 0) {
+                break;
+            }
+            int uriEnd = header.indexOf('>', uriStart + 1);
+            if (uriEnd < 0) {
+                throw new IllegalArgumentException("Missing token > in " + header);
+            }
+            position = uriEnd + 1;
+            int relStart = -1;
+            int relEnd = -1;
+            // parameters up to the next comma outside of quotes: ; name=value ; name="value"
+            while (position < length && header.charAt(position) != ',') {
+                char c = header.charAt(position);
+                if (c == ';' || c == ' ' || c == '\t') {
+                    position++;
+                    continue;
+                }
+                int nameStart = position;
+                while (position < length && "=;,".indexOf(header.charAt(position)) < 0) {
+                    position++;
+                }
+                int nameEnd = trimEnd(header, nameStart, position);
+                if (position >= length || header.charAt(position) != '=') {
+                    continue;
+                }
+                position++;
+                while (position < length && header.charAt(position) == ' ') {
+                    position++;
+                }
+                int valueStart;
+                int valueEnd;
+                if (position < length && header.charAt(position) == '"') {
+                    valueStart = position + 1;
+                    valueEnd = header.indexOf('"', valueStart);
+                    if (valueEnd < 0) {
+                        throw new IllegalArgumentException("Missing closing quote in " + header);
+                    }
+                    position = valueEnd + 1;
+                } else {
+                    valueStart = position;
+                    while (position < length && ";,".indexOf(header.charAt(position)) < 0) {
+                        position++;
+                    }
+                    valueEnd = trimEnd(header, valueStart, position);
+                }
+                if (nameEnd - nameStart == 3 && header.regionMatches(true, nameStart, "rel", 0, 3)) {
+                    relStart = valueStart;
+                    relEnd = valueEnd;
+                }
+            }
+            position++;
+            if (relStart >= 0) {
+                links.addRelations(relStart, relEnd, uriStart + 1, uriEnd);
+            }
+        }
+        return links;
+    }
+
+    /**
+     * Relation value may contain several space separated relation types.
+     */
+    private void addRelations(int relStart, int relEnd, int uriStart, int uriEnd) {
+        int start = relStart;
+        while (start < relEnd) {
+            int end = header.indexOf(' ', start);
+            if (end < 0 || end > relEnd) {
+                end = relEnd;
+            }
+            for (int i = 0; i < RELATIONS.length; i++) {
+                String relation = RELATIONS[i];
+                if (end - start == relation.length() && header.regionMatches(true, start, relation, 0, end - start)) {
+                    offsets[i * 2] = uriStart;
+                    offsets[i * 2 + 1] = uriEnd;
+                }
+            }
+            start = end + 1;
+        }
+    }
+
+    private static int trimEnd(String value, int start, int end) {
+        while (end > start && value.charAt(end - 1) == ' ') {
+            end--;
+        }
+        return end;
+    }
+
+    @Nullable
+    private String get(int relation) {
+        int start = offsets[relation * 2];
+        return start < 0 ? null : header.substring(start, offsets[relation * 2 + 1]).trim();
+    }
+
+    @Nullable
+    public String getFirst() {
+        return get(FIRST);
+    }
+
+    @Nullable
+    public String getPrev() {
+        return get(PREV);
+    }
+
+    @Nullable
+    public String getNext() {
+        return get(NEXT);
+    }
+
+    @Nullable
+    public String getLast() {
+        return get(LAST);
+    }
+
+    public boolean hasNext() {
+        return offsets[NEXT * 2] >= 0;
+    }
+
+    @Nullable
+    public URI getNextUri() {
+        String next = getNext();
+        return next != null ? URI.create(next) : null;
+    }
+}
@@ -0,0 +1,180 @@
+package net.voldrich.webclient.test;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import net.voldrich.webclient.test.GithubClient.Paging;
+
+/**
+ * Chooses paging strategy for {@link Paging#AUTO} from recorded statistics: moving average of the
+ * round trip time, page count of the endpoint (or average page count when unknown) and headroom
+ * of the rate limit budget and the request pacer.
+ * <ul>
+ * <li>{@link Paging#RECURSIVE} when the remaining budget does not cover the requests of the crawl, i.e. the pages
+ * and detail requests of their items, pages are requested one by one so that a rate limit response stops
+ * the crawl early</li>
+ * <li>{@link Paging#EXPAND} for single page endpoints, when the pacer interval is longer than the round trip
+ * or when the whole sequential crawl is shorter than {@link #SEQUENTIAL_CRAWL_LIMIT_MILLIS}</li>
+ * <li>{@link Paging#PARALEL_ORDERED} otherwise</li>
+ * </ul>
+ */
+public class PagingAdvisor {
+
+    private static final Logger logger = LoggerFactory.getLogger(PagingAdvisor.class);
+
+    public static final long SEQUENTIAL_CRAWL_LIMIT_MILLIS = 100;
+
+    private static final double SMOOTHING = 0.2;
+
+    private final Map<Paging, LongAdder> decisions = new EnumMap<>(Paging.class);
+
+    private double roundTripNanos = -1;
+
+    private double pageCount = -1;
+
+    @Nullable
+    private volatile RateLimitStatus lastStatus;
+
+    @Nullable
+    private volatile Paging lastDecision;
+
+    @Nullable
+    private volatile String lastReason;
+
+    public PagingAdvisor() {
+        for (Paging paging : Paging.values()) {
+            decisions.put(paging, new LongAdder());
+        }
+    }
+
+    /**
+     * Records round trip time of every exchange, from the request being sent to the response headers,
+     * and the REST rate limit budget reported by the response.
+     */
+    public ExchangeFilterFunction filter() {
+        return (clientRequest, exchangeFunction) -> {
+            long start = System.nanoTime();
+            return exchangeFunction.exchange(clientRequest)
+                    .doOnNext(clientResponse -> {
+                        recordRoundTrip(System.nanoTime() - start);
+                        RateLimitStatus status = RateLimitStatus.fromCoreHeaders(
+                                clientResponse.headers().asHttpHeaders());
+                        if (status != null) {
+                            lastStatus = status;
+                        }
+                    });
+        };
+    }
+
+    public synchronized void recordRoundTrip(long nanos) {
+        roundTripNanos = roundTripNanos < 0 ? nanos : roundTripNanos + SMOOTHING * (nanos - roundTripNanos);
+    }
+
+    /**
+     * @param pages page count of a crawl, ignored when not positive, e.g. for last link without page parameter
+     */
+    public synchronized void recordPageCount(int pages) {
+        if (pages <= 0) {
+            return;
+        }
+        pageCount = pageCount < 0 ? pages : pageCount + SMOOTHING * (pages - pageCount);
+    }
+
+    /**
+     * @param expectedPages remembered page count of the endpoint, zero when unknown
+     * @param pagesLimit maximal number of pages to load
+     * @param requestsPerPage requests taken from the budget by every page, the page itself and detail requests
+     *                        of its items
+     * @param status current rate limit budget, null when unknown
+     * @param pacerIntervalNanos interval between requests enforced by the pacer
+     */
+    public Paging choose(int expectedPages, int pagesLimit, int requestsPerPage, @Nullable RateLimitStatus status,
+                         long pacerIntervalNanos) {
+        double rtt;
+        double averagePages;
+        synchronized (this) {
+            rtt = roundTripNanos;
+            averagePages = pageCount;
+        }
+        int pages = expectedPages > 0 ? expectedPages : (int) Math.ceil(averagePages);
+        pages = Math.min(pages, pagesLimit);
+
+        Paging paging;
+        String reason;
+        long requests = (long) pages * requestsPerPage;
+        if (status != null && pages > 0 && status.getRemaining() < requests) {
+            paging = Paging.RECURSIVE;
+            reason = "remaining rate limit " + status.getRemaining() + " below " + requests + " requests of "
+                    + pages + " pages";
+        } else if (pages == 1) {
+            paging = Paging.EXPAND;
+            reason = "single page";
+        } else if (rtt < 0) {
+            paging = Paging.PARALEL_ORDERED;
+            reason = "no round trip statistics";
+        } else if (pacerIntervalNanos >= rtt) {
+            paging = Paging.EXPAND;
+            reason = "pacer interval " + TimeUnit.NANOSECONDS.toMillis(pacerIntervalNanos)
+                    + " ms exceeds round trip " + TimeUnit.NANOSECONDS.toMillis((long) rtt) + " ms";
+        } else if (pages > 0 && pages * rtt < TimeUnit.MILLISECONDS.toNanos(SEQUENTIAL_CRAWL_LIMIT_MILLIS)) {
+            paging = Paging.EXPAND;
+            reason = pages + " pages with round trip " + TimeUnit.NANOSECONDS.toMillis((long) rtt) + " ms";
+        } else {
+            paging = Paging.PARALEL_ORDERED;
+            reason = (pages > 0 ? pages + " pages" : "unknown page count") + " with round trip "
+                    + TimeUnit.NANOSECONDS.toMillis((long) rtt) + " ms";
+        }
+        decisions.get(paging).increment();
+        lastDecision = paging;
+        lastReason = reason;
+        logger.debug("Paging {} chosen: {}", paging, reason);
+        return paging;
+    }
+
+    /**
+     * Number of times given strategy was chosen.
+     */
+    public long getDecisionCount(Paging paging) {
+        return decisions.get(paging).longValue();
+    }
+
+    /**
+     * @return rate limit budget reported by the last response, null when unknown
+     */
+    @Nullable
+    public RateLimitStatus getLastStatus() {
+        return lastStatus;
+    }
+
+    @Nullable
+    public Paging getLastDecision() {
+        return lastDecision;
+    }
+
+    @Nullable
+    public String getLastReason() {
+        return lastReason;
+    }
+
+    /**
+     * @return moving average of the round trip time in nanoseconds, -1 when nothing was recorded
+     */
+    public synchronized long getRoundTripNanos() {
+        return (long) roundTripNanos;
+    }
+
+    /**
+     * @return moving average of the page count, -1 when nothing was recorded
+     */
+    public synchronized double getPageCount() {
+        return pageCount;
+    }
+}
@@ -0,0 +1,96 @@
+package net.voldrich.webclient.test;
+
+import javax.annotation.Nullable;
+
+import org.springframework.http.HttpHeaders;
+
+/**
+ * Rate limit budget reported by github in X-RateLimit-* response headers.
+ */
+public class RateLimitStatus {
+
+    public static final String LIMIT_HEADER = "X-RateLimit-Limit";
+
+    public static final String REMAINING_HEADER = "X-RateLimit-Remaining";
+
+    public static final String RESET_HEADER = "X-RateLimit-Reset";
+
+    public static final String RESOURCE_HEADER = "X-RateLimit-Resource";
+
+    /**
+     * Budget of REST API requests, GraphQL requests report separate {@code graphql} budget in points.
+     */
+    public static final String CORE_RESOURCE = "core";
+
+    private static final String HEADER_PREFIX = "X-RateLimit-";
+
+    private final long limit;
+
+    private final long remaining;
+
+    private final long resetEpochSeconds;
+
+    public RateLimitStatus(long limit, long remaining, long resetEpochSeconds) {
+        this.limit = limit;
+        this.remaining = remaining;
+        this.resetEpochSeconds = resetEpochSeconds;
+    }
+
+    /**
+     * @return parsed status or null when response does not carry rate limit headers
+     */
+    @Nullable
+    public static RateLimitStatus fromHeaders(HttpHeaders headers) {
+        String limit = headers.getFirst(LIMIT_HEADER);
+        String remaining = headers.getFirst(REMAINING_HEADER);
+        String reset = headers.getFirst(RESET_HEADER);
+        if (limit == null || remaining == null || reset == null) {
+            return null;
+        }
+        try {
+            return new RateLimitStatus(Long.parseLong(limit.trim()), Long.parseLong(remaining.trim()),
+                    Long.parseLong(reset.trim()));
+        } catch (NumberFormatException e) {
+            return null;
+        }
+    }
+
+    /**
+     * Budget of REST API requests, responses without resource header are assumed to report it.
+     *
+     * @return parsed status or null when response does not carry core rate limit headers
+     */
+    @Nullable
+    public static RateLimitStatus fromCoreHeaders(HttpHeaders headers) {
+        String resource = headers.getFirst(RESOURCE_HEADER);
+        return resource == null || CORE_RESOURCE.equalsIgnoreCase(resource.trim()) ? fromHeaders(headers) : null;
+    }
+
+    /**
+     * @return true for X-RateLimit-* headers, which describe the budget at the time of the response only
+     */
+    public static boolean isRateLimitHeader(String name) {
+        return name.regionMatches(true, 0, HEADER_PREFIX, 0, HEADER_PREFIX.length());
+    }
+
+    public long getLimit() {
+        return limit;
+    }
+
+    public long getRemaining() {
+        return remaining;
+    }
+
+    public long getResetEpochSeconds() {
+        return resetEpochSeconds;
+    }
+
+    public long getResetEpochMillis() {
+        return resetEpochSeconds * 1000;
+    }
+
+    @Override
+    public String toString() {
+        return "RateLimitStatus{limit=" + limit + ", remaining=" + remaining + ", reset=" + resetEpochSeconds + '}';
+    }
+}
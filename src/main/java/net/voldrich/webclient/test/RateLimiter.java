@@ -1,34 +1,123 @@
 package net.voldrich.webclient.test;
 
 import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
 
-import reactor.core.Disposable;
 import reactor.core.publisher.Flux;
 import reactor.core.publisher.Mono;
-import reactor.core.publisher.WorkQueueProcessor;
-import reactor.util.function.Tuple2;
 
+/**
+ * Lock-free token bucket. Bucket holds up to capacity permits and is refilled by one permit every
+ * refill period. The whole state is a single theoretical arrival time updated by CAS (generic cell
+ * rate algorithm), waiting requests are delayed by timer scheduling, no threads are started or parked.
+ * <p>
+ * Refill period may be changed at any time and all permits may be paused for a given time, zero refill
+ * period means unlimited rate.
+ */
 public class RateLimiter {
 
-    private WorkQueueProcessor<Long> requestTicketQueue;
+    private final int capacity;
 
-    private Disposable ticketGenerator;
+    private volatile long refillNanos;
 
-    private Duration duration;
+    private final AtomicLong theoreticalArrivalTime;
 
+    /**
+     * One permit per given duration, no burst.
+     */
     public RateLimiter(Duration duration) {
-        this.duration = duration;
-        this.requestTicketQueue = WorkQueueProcessor.<Long>builder()
-                .name("RequestTicketQueue")
-                .bufferSize(1)
-                .build();
+        this(1, duration);
+    }
+
+    public RateLimiter(int capacity, Duration refillPeriod) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("Capacity must be positive: " + capacity);
+        }
+        this.capacity = capacity;
+        this.refillNanos = refillPeriod.toNanos();
+        this.theoreticalArrivalTime = new AtomicLong(System.nanoTime());
+    }
+
+    /**
+     * Reserves a permit.
+     *
+     * @return nanoseconds to wait before the permit may be used
+     */
+    public long reserve() {
+        while (true) {
+            long now = System.nanoTime();
+            long refill = refillNanos;
+            long arrivalTime = theoreticalArrivalTime.get();
+            long nextArrivalTime = Math.max(arrivalTime, now) + refill;
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, nextArrivalTime)) {
+                return Math.max(0, nextArrivalTime - capacity * refill - now);
+            }
+        }
+    }
+
+    /**
+     * Takes a permit only when it is available right now.
+     */
+    public boolean tryAcquire() {
+        while (true) {
+            long now = System.nanoTime();
+            long refill = refillNanos;
+            long arrivalTime = theoreticalArrivalTime.get();
+            long nextArrivalTime = Math.max(arrivalTime, now) + refill;
+            if (nextArrivalTime - capacity * refill > now) {
+                return false;
+            }
+            if (theoreticalArrivalTime.compareAndSet(arrivalTime, nextArrivalTime)) {
+                return true;
+            }
+        }
+    }
 
-        this.ticketGenerator = Flux
-                .interval(duration)
-                .subscribe(requestTicketQueue::onNext);
+    /**
+     * No permit is given sooner than after given time, burst capacity is empty once the pause is over.
+     */
+    public void pauseFor(long nanos) {
+        long resumeTime = System.nanoTime() + nanos;
+        theoreticalArrivalTime.accumulateAndGet(resumeTime, (arrivalTime, resume) -> {
+            long refill = refillNanos;
+            return Math.max(arrivalTime, resume + (capacity - 1) * refill);
+        });
     }
 
+    public long getRefillNanos() {
+        return refillNanos;
+    }
+
+    /**
+     * Changes the rate, permits already reserved are not affected.
+     */
+    public void setRefillNanos(long refillNanos) {
+        this.refillNanos = refillNanos;
+    }
+
+    /**
+     * Completes once a permit is available.
+     */
+    public Mono<Long> acquire() {
+        return Mono.defer(() -> {
+            long delay = reserve();
+            return delay > 0 ? Mono.delay(Duration.ofNanos(delay)) : Mono.just(0L);
+        });
+    }
+
+    /**
+     * Delays subscription to the request until a permit is available.
+     */
     public <T> Mono<T> limitRate(Mono<T> request) {
-        return request.zipWith(requestTicketQueue.next()).map(Tuple2::getT1);
+        return acquire().then(request);
+    }
+
+    /**
+     * Emits elements at the limited rate. Upstream is requested one element at a time, so at most one
+     * permit is reserved ahead of the downstream demand.
+     * Intended for {@code flux.transform(rateLimiter::limitRate)}.
+     */
+    public <T> Flux<T> limitRate(Flux<T> source) {
+        return source.concatMap(value -> acquire().thenReturn(value), 1);
     }
 }
@@ -0,0 +1,161 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
+
+import org.HdrHistogram.Histogram;
+import org.HdrHistogram.Recorder;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Hedging of idempotent requests. When a request has not responded within a percentile of recent response
+ * times a duplicate is sent, the first response wins and the other request is cancelled. A response which
+ * arrives after the race was decided is passed to the discard callback to be released.
+ * <p>
+ * Response times of the original requests are recorded from the request subscription to the response headers,
+ * an original cancelled by a faster hedge is recorded with the time elapsed until its cancellation. Hedges are
+ * not timed. The percentile is taken from windows of at least {@link #MIN_SAMPLES} responses refreshed at most
+ * once per {@link #UPDATE_INTERVAL}. No request is hedged until the first window is complete. Hedges are limited
+ * by the budget ratio, e.g. 0.05 allows at most one hedge per 20 requests.
+ */
+public class RequestHedger {
+
+    static final int MIN_SAMPLES = 20;
+
+    static final Duration UPDATE_INTERVAL = Duration.ofSeconds(1);
+
+    private final double percentile;
+
+    private final double budgetRatio;
+
+    private final Recorder recorder = new Recorder(3);
+
+    private final Histogram window = new Histogram(3);
+
+    private final LongAdder requestCount = new LongAdder();
+
+    private final AtomicLong hedgeCount = new AtomicLong();
+
+    private final LongAdder hedgeWinCount = new LongAdder();
+
+    private volatile long lastUpdate = System.nanoTime();
+
+    private volatile long hedgeDelayNanos;
+
+    public RequestHedger(double percentile, double budgetRatio) {
+        this.percentile = percentile;
+        this.budgetRatio = budgetRatio;
+    }
+
+    /**
+     * @param request request which is subscribed right away
+     * @param hedge   duplicate of the request, subscribed after the hedge delay when budget allows
+     * @param discard receives response which lost the race, e.g. to release its body
+     */
+    public <T> Mono<T> hedge(Mono<T> request, Mono<T> hedge, Consumer<? super T> discard) {
+        return Mono.defer(() -> {
+            long start = System.nanoTime();
+            requestCount.increment();
+            AtomicBoolean timed = new AtomicBoolean();
+            Runnable recordTime = () -> {
+                if (timed.compareAndSet(false, true)) {
+                    recorder.recordValue(System.nanoTime() - start);
+                }
+            };
+            Mono<T> timedRequest = request
+                    .doOnNext(value -> recordTime.run())
+                    .doOnCancel(recordTime);
+            long delay = getHedgeDelayNanos();
+            if (delay <= 0) {
+                return timedRequest;
+            }
+            AtomicBoolean decided = new AtomicBoolean();
+            return Mono.first(contender(timedRequest, decided, discard), Mono.delay(Duration.ofNanos(delay))
+                    .filter(tick -> tryAcquireBudget())
+                    .flatMap(tick -> contender(hedge, decided, discard)
+                            .doOnNext(value -> hedgeWinCount.increment()))
+                    // hedge never completes on its own, the request decides when hedge is not possible or fails
+                    .onErrorResume(throwable -> Mono.never())
+                    .switchIfEmpty(Mono.never()));
+        });
+    }
+
+    /**
+     * Only the first response is emitted to the race, a later one is discarded and its contender waits for
+     * being cancelled.
+     */
+    private static <T> Mono<T> contender(Mono<T> attempt, AtomicBoolean decided, Consumer<? super T> discard) {
+        return attempt.flatMap(value -> {
+            if (decided.compareAndSet(false, true)) {
+                return Mono.just(value);
+            }
+            discard.accept(value);
+            return Mono.never();
+        });
+    }
+
+    private boolean tryAcquireBudget() {
+        long limit = (long) (budgetRatio * requestCount.sum());
+        while (true) {
+            long hedges = hedgeCount.get();
+            if (hedges >= limit) {
+                return false;
+            }
+            if (hedgeCount.compareAndSet(hedges, hedges + 1)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * @return current hedge delay, zero until enough response times are recorded
+     */
+    public long getHedgeDelayNanos() {
+        long now = System.nanoTime();
+        if (now - lastUpdate >= UPDATE_INTERVAL.toNanos()) {
+            synchronized (window) {
+                if (now - lastUpdate >= UPDATE_INTERVAL.toNanos()) {
+                    window.add(recorder.getIntervalHistogram());
+                    if (window.getTotalCount() >= MIN_SAMPLES) {
+                        hedgeDelayNanos = window.getValueAtPercentile(percentile);
+                        window.reset();
+                    }
+                    lastUpdate = now;
+                }
+            }
+        }
+        return hedgeDelayNanos;
+    }
+
+    public long getRequestCount() {
+        return requestCount.sum();
+    }
+
+    public long getHedgeCount() {
+        return hedgeCount.get();
+    }
+
+    /**
+     * @return number of hedges which responded before the original request
+     */
+    public long getHedgeWinCount() {
+        return hedgeWinCount.sum();
+    }
+
+    @Override
+    public String toString() {
+        return "RequestHedger{" +
+                "percentile=" + percentile +
+                ", budgetRatio=" + budgetRatio +
+                ", hedgeDelay=" + TimeUnit.NANOSECONDS.toMillis(hedgeDelayNanos) +
+                " ms, requests=" + getRequestCount() +
+                ", hedges=" + getHedgeCount() +
+                ", hedgeWins=" + getHedgeWinCount() +
+                '}';
+    }
+}
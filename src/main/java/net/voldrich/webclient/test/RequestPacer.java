@@ -0,0 +1,93 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Non-blocking request rate limiter built on {@link RateLimiter} without burst. Every request reserves
+ * the next free permit time with a CAS and its subscription is delayed until then by timer scheduling,
+ * so no thread is parked while waiting and any number of requests can be pending.
+ * <p>
+ * In adaptive mode the rate follows the rate limit headers, remaining budget is spread evenly over the
+ * time left until the reset. Configured rate is then used as an upper bound.
+ */
+public class RequestPacer {
+
+    private static final Logger logger = LoggerFactory.getLogger(RequestPacer.class);
+
+    private final RateLimiter rateLimiter;
+
+    private final long minIntervalNanos;
+
+    @Nullable
+    private RateLimitStatus lastStatus;
+
+    /**
+     * @param permitsPerSecond maximal rate, zero for unlimited
+     */
+    public RequestPacer(double permitsPerSecond) {
+        this.minIntervalNanos = permitsPerSecond > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond) : 0;
+        this.rateLimiter = new RateLimiter(1, Duration.ofNanos(minIntervalNanos));
+    }
+
+    /**
+     * Reserves next permit.
+     *
+     * @return nanoseconds to wait before the permit may be used
+     */
+    public long reserve() {
+        return rateLimiter.reserve();
+    }
+
+    /**
+     * Delays subscription to the request until a permit is available.
+     */
+    public <T> Mono<T> limit(Mono<T> request) {
+        return rateLimiter.limitRate(request);
+    }
+
+    /**
+     * Adapts rate to the budget reported by github. Statuses of concurrently finished responses may arrive
+     * out of order, status with higher remaining budget for the same reset window is ignored.
+     */
+    public synchronized void adapt(RateLimitStatus status) {
+        if (lastStatus != null
+                && lastStatus.getResetEpochSeconds() == status.getResetEpochSeconds()
+                && lastStatus.getRemaining() < status.getRemaining()) {
+            return;
+        }
+        lastStatus = status;
+        long untilResetNanos = TimeUnit.MILLISECONDS.toNanos(
+                Math.max(0, status.getResetEpochMillis() - System.currentTimeMillis()));
+        if (status.getRemaining() <= 0) {
+            pauseFor(untilResetNanos);
+            return;
+        }
+        long intervalNanos = Math.max(minIntervalNanos, untilResetNanos / status.getRemaining());
+        rateLimiter.setRefillNanos(intervalNanos);
+        logger.debug("Adapted to {}, interval {} ms", status, TimeUnit.NANOSECONDS.toMillis(intervalNanos));
+    }
+
+    /**
+     * No permit is given sooner than after given time.
+     */
+    public void pauseFor(long nanos) {
+        rateLimiter.pauseFor(nanos);
+    }
+
+    @Nullable
+    public synchronized RateLimitStatus getLastStatus() {
+        return lastStatus;
+    }
+
+    public long getIntervalNanos() {
+        return rateLimiter.getRefillNanos();
+    }
+}
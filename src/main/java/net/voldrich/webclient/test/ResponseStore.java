@@ -0,0 +1,25 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+
+import javax.annotation.Nullable;
+
+/**
+ * Storage of responses used by {@link ConditionalRequestCache}.
+ */
+public interface ResponseStore {
+
+    @Nullable
+    CachedResponse get(URI uri);
+
+    void put(URI uri, CachedResponse response);
+
+    long size();
+
+    /**
+     * @return true when access blocks on IO, it is then moved off the event loop
+     */
+    default boolean isBlocking() {
+        return false;
+    }
+}
@@ -0,0 +1,169 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.web.reactive.function.client.ClientRequest;
+import org.springframework.web.reactive.function.client.ExchangeFilterFunction;
+
+import reactor.core.publisher.Mono;
+
+/**
+ * Pool of access tokens, each with its own REST rate limit budget updated from the X-RateLimit-* headers,
+ * GraphQL responses report a separate budget which is ignored.
+ * Every request is authorized by the token with the most remaining budget, exhausted tokens are parked
+ * until their reset time. When all tokens are exhausted requests wait for the earliest reset.
+ */
+public class TokenPool {
+
+    private static final Logger logger = LoggerFactory.getLogger(TokenPool.class);
+
+    private final List<Token> tokens;
+
+    public TokenPool(List<String> accessTokens) {
+        if (accessTokens.isEmpty()) {
+            throw new IllegalArgumentException("At least one access token is required");
+        }
+        List<Token> tokenList = new ArrayList<>(accessTokens.size());
+        for (int i = 0; i < accessTokens.size(); i++) {
+            tokenList.add(new Token(i, accessTokens.get(i)));
+        }
+        this.tokens = Collections.unmodifiableList(tokenList);
+    }
+
+    /**
+     * Authorizes the request by selected token and updates the token budget from response headers.
+     */
+    public ExchangeFilterFunction filter() {
+        return (clientRequest, exchangeFunction) -> select()
+                .flatMap(token -> exchangeFunction
+                        .exchange(ClientRequest.from(clientRequest)
+                                .headers(headers -> headers.setBasicAuth("token ", token.accessToken))
+                                .build())
+                        .doOnNext(clientResponse -> {
+                            RateLimitStatus status = RateLimitStatus.fromCoreHeaders(
+                                    clientResponse.headers().asHttpHeaders());
+                            if (status != null) {
+                                token.update(status);
+                            }
+                        }));
+    }
+
+    /**
+     * Selects token with the most remaining budget, waits for the earliest reset when all are exhausted.
+     */
+    public Mono<Token> select() {
+        return Mono.defer(() -> {
+            long now = System.currentTimeMillis();
+            Token selected = null;
+            long earliestReset = Long.MAX_VALUE;
+            synchronized (this) {
+                for (Token token : tokens) {
+                    if (token.isParked(now)) {
+                        earliestReset = Math.min(earliestReset, token.resetMillis);
+                    } else if (selected == null || token.remaining > selected.remaining) {
+                        selected = token;
+                    }
+                }
+                if (selected != null) {
+                    selected.remaining--;
+                    return Mono.just(selected);
+                }
+            }
+            logger.info("All {} access tokens exhausted, waiting {} ms for reset", tokens.size(),
+                    earliestReset - now);
+            return Mono.delay(Duration.ofMillis(Math.max(0, earliestReset - now))).then(select());
+        });
+    }
+
+    /**
+     * Budget of the whole pool, sum of the remaining budgets until the latest reset.
+     *
+     * @return null when no token reported its budget yet
+     */
+    @Nullable
+    public synchronized RateLimitStatus getStatus() {
+        long limit = 0;
+        long remaining = 0;
+        long reset = 0;
+        boolean known = false;
+        for (Token token : tokens) {
+            if (token.limit >= 0) {
+                known = true;
+                limit += token.limit;
+                remaining += Math.max(0, token.remaining);
+                reset = Math.max(reset, token.resetMillis / 1000);
+            }
+        }
+        return known ? new RateLimitStatus(limit, remaining, reset) : null;
+    }
+
+    public List<Token> getTokens() {
+        return tokens;
+    }
+
+    public class Token {
+
+        private final int index;
+
+        private final String accessToken;
+
+        private long limit = -1;
+
+        private long remaining = Long.MAX_VALUE;
+
+        private long resetMillis;
+
+        Token(int index, String accessToken) {
+            this.index = index;
+            this.accessToken = accessToken;
+        }
+
+        /**
+         * Statuses of concurrently finished responses may arrive out of order, status with higher remaining
+         * budget for the same reset window is ignored.
+         */
+        void update(RateLimitStatus status) {
+            synchronized (TokenPool.this) {
+                if (limit >= 0 && resetMillis == status.getResetEpochMillis() && remaining < status.getRemaining()) {
+                    return;
+                }
+                limit = status.getLimit();
+                remaining = status.getRemaining();
+                resetMillis = status.getResetEpochMillis();
+            }
+        }
+
+        boolean isParked(long now) {
+            if (remaining > 0) {
+                return false;
+            }
+            if (now >= resetMillis) {
+                remaining = limit >= 0 ? limit : Long.MAX_VALUE;
+                return false;
+            }
+            return true;
+        }
+
+        public int getIndex() {
+            return index;
+        }
+
+        public long getRemaining() {
+            synchronized (TokenPool.this) {
+                return remaining;
+            }
+        }
+
+        @Override
+        public String toString() {
+            return "Token{index=" + index + ", remaining=" + getRemaining() + '}';
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package net.voldrich.webclient.test;
+
+import java.util.concurrent.atomic.LongAdder;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.buffer.ByteBufHolder;
+import io.netty.channel.ChannelHandler;
+import io.netty.channel.ChannelHandlerContext;
+import io.netty.channel.ChannelInboundHandlerAdapter;
+import io.netty.channel.ChannelPipeline;
+import reactor.netty.NettyPipeline;
+
+/**
+ * Counters of received bytes. Transferred bytes are counted right after TLS decryption (or first in the
+ * pipeline for plain connections) and include compressed bodies and headers, decoded bytes are body bytes
+ * after decompression as passed to the JSON decoder.
+ */
+public class TransferStatistics {
+
+    static final String TRANSFERRED_HANDLER = "github.transferredBytes";
+
+    static final String DECODED_HANDLER = "github.decodedBytes";
+
+    private final LongAdder transferredBytes = new LongAdder();
+
+    private final LongAdder decodedBytes = new LongAdder();
+
+    private final ChannelHandler transferredCounter = new ByteCounter(transferredBytes);
+
+    private final ChannelHandler decodedCounter = new ByteCounter(decodedBytes);
+
+    /**
+     * Adds byte counters to the pipeline of a connection unless they are already present, pooled
+     * connections keep them for their whole life.
+     */
+    public void install(ChannelPipeline pipeline) {
+        if (pipeline.get(TRANSFERRED_HANDLER) == null) {
+            if (pipeline.get(NettyPipeline.SslHandler) != null) {
+                pipeline.addAfter(NettyPipeline.SslHandler, TRANSFERRED_HANDLER, transferredCounter);
+            } else {
+                pipeline.addFirst(TRANSFERRED_HANDLER, transferredCounter);
+            }
+        }
+        if (pipeline.get(DECODED_HANDLER) == null) {
+            if (pipeline.get(NettyPipeline.HttpDecompressor) != null) {
+                pipeline.addAfter(NettyPipeline.HttpDecompressor, DECODED_HANDLER, decodedCounter);
+            } else if (pipeline.get(NettyPipeline.HttpCodec) != null) {
+                pipeline.addAfter(NettyPipeline.HttpCodec, DECODED_HANDLER, decodedCounter);
+            }
+        }
+    }
+
+    public long getTransferredBytes() {
+        return transferredBytes.longValue();
+    }
+
+    public long getDecodedBytes() {
+        return decodedBytes.longValue();
+    }
+
+    /**
+     * @return decoded to transferred bytes ratio, 0 when nothing was received
+     */
+    public double getCompressionRatio() {
+        long transferred = getTransferredBytes();
+        return transferred > 0 ? (double) getDecodedBytes() / transferred : 0;
+    }
+
+    @ChannelHandler.Sharable
+    private static class ByteCounter extends ChannelInboundHandlerAdapter {
+
+        private final LongAdder bytes;
+
+        ByteCounter(LongAdder bytes) {
+            this.bytes = bytes;
+        }
+
+        @Override
+        public void channelRead(ChannelHandlerContext ctx, Object msg) {
+            if (msg instanceof ByteBuf) {
+                bytes.add(((ByteBuf) msg).readableBytes());
+            } else if (msg instanceof ByteBufHolder) {
+                bytes.add(((ByteBufHolder) msg).content().readableBytes());
+            }
+            ctx.fireChannelRead(msg);
+        }
+    }
+}
@@ -0,0 +1,113 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.cache.CacheStats;
+import net.voldrich.webclient.test.dto.UserDetail;
+import reactor.core.publisher.Mono;
+
+/**
+ * Size bounded in-memory cache of decoded user details. Entries are fresh for given time to live,
+ * after that they are still served for the stale-while-revalidate period while being reloaded
+ * in background. Entries older than both periods are evicted.
+ */
+public class UserDetailCache {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailCache.class);
+
+    private final Cache<String, Entry> cache;
+
+    private final long timeToLiveNanos;
+
+    private final Set<String> refreshing = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder refreshCount = new LongAdder();
+
+    public UserDetailCache(int maximumSize, Duration timeToLive, Duration staleWhileRevalidate) {
+        this.timeToLiveNanos = timeToLive.toNanos();
+        this.cache = CacheBuilder.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive.plus(staleWhileRevalidate).toNanos(), TimeUnit.NANOSECONDS)
+                .recordStats()
+                .build();
+    }
+
+    public Mono<UserDetail> get(String login, Function<String, Mono<UserDetail>> loader) {
+        return Mono.defer(() -> {
+            Entry entry = cache.getIfPresent(login);
+            if (entry == null) {
+                return loader.apply(login)
+                        .doOnNext(userDetail -> cache.put(login, new Entry(userDetail)));
+            }
+            if (entry.isStale(timeToLiveNanos) && refreshing.add(login)) {
+                refreshInBackground(login, loader);
+            }
+            return Mono.just(entry.value);
+        });
+    }
+
+    /**
+     * @return true when the login is cached, stale entries included
+     */
+    public boolean contains(String login) {
+        return cache.asMap().containsKey(login);
+    }
+
+    public void put(String login, UserDetail userDetail) {
+        cache.put(login, new Entry(userDetail));
+    }
+
+    private void refreshInBackground(String login, Function<String, Mono<UserDetail>> loader) {
+        refreshCount.increment();
+        loader.apply(login)
+                .doFinally(signalType -> refreshing.remove(login))
+                .subscribe(
+                        userDetail -> cache.put(login, new Entry(userDetail)),
+                        throwable -> logger.warn("Background refresh of user {} failed {}", login,
+                                throwable.toString()));
+    }
+
+    public void invalidateAll() {
+        cache.invalidateAll();
+    }
+
+    public long size() {
+        return cache.size();
+    }
+
+    /**
+     * Hit, miss and eviction counters.
+     */
+    public CacheStats stats() {
+        return cache.stats();
+    }
+
+    public long getRefreshCount() {
+        return refreshCount.longValue();
+    }
+
+    private static class Entry {
+
+        private final UserDetail value;
+
+        private final long loadedAt = System.nanoTime();
+
+        Entry(UserDetail value) {
+            this.value = value;
+        }
+
+        boolean isStale(long timeToLiveNanos) {
+            return System.nanoTime() - loadedAt > timeToLiveNanos;
+        }
+    }
+}
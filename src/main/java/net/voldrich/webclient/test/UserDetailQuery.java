@@ -0,0 +1,121 @@
+package net.voldrich.webclient.test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import javax.annotation.Nullable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import net.voldrich.webclient.test.dto.UserDetail;
+
+/**
+ * GraphQL v4 query resolving a batch of logins at once, every login is queried under its own alias
+ * {@code u0..uN} and passed as a variable. Result is mapped to the REST {@link UserDetail} representation.
+ */
+public class UserDetailQuery {
+
+    private static final Logger logger = LoggerFactory.getLogger(UserDetailQuery.class);
+
+    public static final String GRAPHQL_URL = "/graphql";
+
+    private static final String USER_FIELDS = "login databaseId avatarUrl url name company websiteUrl location "
+            + "email bio isSiteAdmin isHireable createdAt updatedAt "
+            + "followers { totalCount } following { totalCount } "
+            + "repositories(privacy: PUBLIC) { totalCount } gists(privacy: PUBLIC) { totalCount }";
+
+    private final List<String> logins;
+
+    public UserDetailQuery(List<String> logins) {
+        this.logins = logins;
+    }
+
+    /**
+     * @return request body with query and variables
+     */
+    public Map<String, Object> toRequest() {
+        StringBuilder query = new StringBuilder("query(");
+        Map<String, Object> variables = new HashMap<>();
+        for (int i = 0; i < logins.size(); i++) {
+            query.append(i > 0 ? ", " : "").append("$l").append(i).append(": String!");
+            variables.put("l" + i, logins.get(i));
+        }
+        query.append(") {");
+        for (int i = 0; i < logins.size(); i++) {
+            query.append(" u").append(i).append(": user(login: $l").append(i).append(") { ")
+                    .append(USER_FIELDS).append(" }");
+        }
+        query.append(" }");
+
+        Map<String, Object> request = new HashMap<>();
+        request.put("query", query.toString());
+        request.put("variables", variables);
+        return request;
+    }
+
+    /**
+     * Maps response to user details keyed by requested login in order of the logins, logins which were
+     * not resolved are skipped.
+     *
+     * @param baseUrl REST API URL used to fill in the API URLs of the users
+     * @throws GithubClientException when the response carries no data
+     */
+    public Map<String, UserDetail> readResponse(JsonNode response, String baseUrl) {
+        JsonNode data = response.get("data");
+        if (data == null || data.isNull()) {
+            throw new GithubClientException("GraphQL request failed: " + response.path("errors"));
+        }
+        Map<String, UserDetail> details = new LinkedHashMap<>();
+        for (int i = 0; i < logins.size(); i++) {
+            JsonNode user = data.get("u" + i);
+            if (user == null || user.isNull()) {
+                logger.warn("User {} not resolved by GraphQL query", logins.get(i));
+                continue;
+            }
+            details.put(logins.get(i), toUserDetail(user, baseUrl));
+        }
+        return details;
+    }
+
+    private static UserDetail toUserDetail(JsonNode user, String baseUrl) {
+        UserDetail detail = new UserDetail();
+        String login = text(user, "login");
+        detail.setLogin(login);
+        detail.setId(user.path("databaseId").isNumber() ? user.get("databaseId").asLong() : null);
+        detail.setType("User");
+        detail.setAvatarUrl(text(user, "avatarUrl"));
+        detail.setHtmlUrl(text(user, "url"));
+        detail.setUrl(baseUrl + "/users/" + login);
+        detail.setName(text(user, "name"));
+        detail.setCompany(text(user, "company"));
+        detail.setBlog(text(user, "websiteUrl"));
+        detail.setLocation(text(user, "location"));
+        detail.setEmail(text(user, "email"));
+        detail.setBio(text(user, "bio"));
+        detail.setSiteAdmin(user.path("isSiteAdmin").asBoolean());
+        detail.setHireable(user.path("isHireable").isBoolean() ? user.get("isHireable").asBoolean() : null);
+        detail.setPublicRepos(user.path("repositories").path("totalCount").asInt());
+        detail.setPublicGists(user.path("gists").path("totalCount").asInt());
+        detail.setFollowers(user.path("followers").path("totalCount").asInt());
+        detail.setFollowing(user.path("following").path("totalCount").asInt());
+        String createdAt = text(user, "createdAt");
+        detail.setCreatedAt(createdAt != null ? GithubDates.parseDate(createdAt) : null);
+        String updatedAt = text(user, "updatedAt");
+        detail.setUpdatedAt(updatedAt != null ? GithubDates.parseDate(updatedAt) : null);
+        return detail;
+    }
+
+    @Nullable
+    private static String text(JsonNode node, String field) {
+        JsonNode value = node.get(field);
+        return value == null || value.isNull() ? null : value.asText();
+    }
+
+    public List<String> getLogins() {
+        return logins;
+    }
+}
@@ -0,0 +1,190 @@
+package net.voldrich.webclient.test;
+
+import java.io.IOException;
+import java.net.URI;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.stream.Stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Binary format, index growth, reopening and recovery from damaged segment of {@link DiskResponseStore}.
+ */
+public class DiskResponseStoreTest {
+
+    private Path directory;
+
+    @BeforeEach
+    void createDirectory() throws IOException {
+        directory = Files.createTempDirectory("response-store");
+    }
+
+    @AfterEach
+    void deleteDirectory() throws IOException {
+        try (Stream<Path> files = Files.walk(directory)) {
+            files.sorted(Comparator.reverseOrder()).forEach(path -> path.toFile().delete());
+        }
+    }
+
+    private static URI uri(int i) {
+        return URI.create("https://api.github.com/users/user-" + i + "?q=%C3%A9");
+    }
+
+    private static CachedResponse response(int i) {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"etag-" + i + "\"");
+        headers.add("X-Multi", "first");
+        headers.add("X-Multi", "druhý");
+        return new CachedResponse(200, headers, ("{\"login\":\"user-" + i + "\"}").getBytes(StandardCharsets.UTF_8));
+    }
+
+    private static void assertResponse(int i, CachedResponse actual) {
+        assertNotNull(actual, "Missing response " + i);
+        CachedResponse expected = response(i);
+        assertEquals(expected.getStatus(), actual.getStatus());
+        assertEquals(expected.getHeaders(), actual.getHeaders());
+        assertArrayEquals(expected.getBody(), actual.getBody());
+    }
+
+    @Test
+    void testRoundTrip() throws IOException {
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            assertNull(store.get(uri(1)));
+            store.put(uri(1), response(1));
+            store.put(uri(2), new CachedResponse(204, new HttpHeaders(), new byte[0]));
+            assertResponse(1, store.get(uri(1)));
+            assertFalse(store.get(uri(1)).isRestored());
+            assertEquals(0, store.get(uri(2)).getBody().length);
+            store.put(uri(1), response(3));
+            assertEquals("\"etag-3\"", store.get(uri(1)).getETag());
+            assertEquals(2, store.size());
+        }
+    }
+
+    @Test
+    void testRateLimitHeadersNotPersisted() throws IOException {
+        HttpHeaders headers = new HttpHeaders();
+        headers.setETag("\"etag\"");
+        headers.set(RateLimitStatus.LIMIT_HEADER, "5000");
+        headers.set(RateLimitStatus.REMAINING_HEADER, "10");
+        headers.set("x-ratelimit-reset", "1600000000");
+        headers.set("X-RateLimit-Resource", "core");
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            store.put(uri(1), new CachedResponse(200, headers, new byte[0]));
+        }
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            CachedResponse restored = store.get(uri(1));
+            assertEquals("\"etag\"", restored.getETag());
+            assertEquals(1, restored.getHeaders().size());
+            assertNull(RateLimitStatus.fromHeaders(restored.getHeaders()));
+        }
+    }
+
+    @Test
+    void testGrowAndReopen() throws IOException {
+        int count = 3000;
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            for (int i = 0; i < count; i++) {
+                store.put(uri(i), response(i));
+            }
+            assertEquals(count, store.size());
+            for (int i = 0; i < count; i++) {
+                assertResponse(i, store.get(uri(i)));
+            }
+        }
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            assertEquals(count, store.size());
+            for (int i = 0; i < count; i++) {
+                CachedResponse restored = store.get(uri(i));
+                assertResponse(i, restored);
+                assertTrue(restored.isRestored());
+            }
+            store.put(uri(0), response(0));
+            assertFalse(store.get(uri(0)).isRestored());
+            assertNull(store.get(uri(count)));
+        }
+    }
+
+    @Test
+    void testTruncatedSegment() throws IOException {
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            for (int i = 0; i < 10; i++) {
+                store.put(uri(i), response(i));
+            }
+        }
+        try (FileChannel segment = FileChannel.open(directory.resolve("responses.seg"), StandardOpenOption.WRITE)) {
+            segment.truncate(segment.size() - 3);
+        }
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            assertNull(store.get(uri(9)));
+            assertEquals(9, store.size());
+            for (int i = 0; i < 9; i++) {
+                assertResponse(i, store.get(uri(i)));
+            }
+            store.put(uri(9), response(9));
+            assertResponse(9, store.get(uri(9)));
+        }
+    }
+
+    @Test
+    void testCorruptedLength() throws IOException {
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            store.put(uri(1), response(1));
+        }
+        Path segmentFile = directory.resolve("responses.seg");
+        byte[] segment = Files.readAllBytes(segmentFile);
+        // URI length right after record magic
+        Arrays.fill(segment, 4, 8, (byte) 0x7f);
+        Files.write(segmentFile, segment);
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            assertNull(store.get(uri(1)));
+            assertEquals(0, store.size());
+        }
+    }
+
+    @Test
+    void testCorruptedRecordsKeepOthersReachable() throws IOException {
+        int count = 3000;
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            for (int i = 0; i < count; i++) {
+                store.put(uri(i), response(i));
+            }
+        }
+        Path segmentFile = directory.resolve("responses.seg");
+        String segment = new String(Files.readAllBytes(segmentFile), StandardCharsets.ISO_8859_1);
+        byte[] corrupted = Files.readAllBytes(segmentFile);
+        for (int i = 0; i < count; i += 10) {
+            // record magic precedes URI length and URI
+            int magic = segment.indexOf(uri(i).toString()) - 8;
+            corrupted[magic] = 0;
+        }
+        Files.write(segmentFile, corrupted);
+        try (DiskResponseStore store = new DiskResponseStore(directory)) {
+            for (int i = 0; i < count; i += 10) {
+                assertNull(store.get(uri(i)));
+            }
+            assertEquals(count - count / 10, store.size());
+            for (int i = 0; i < count; i++) {
+                if (i % 10 != 0) {
+                    assertResponse(i, store.get(uri(i)));
+                }
+            }
+        }
+    }
+}
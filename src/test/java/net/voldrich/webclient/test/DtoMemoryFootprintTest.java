@@ -0,0 +1,106 @@
+package net.voldrich.webclient.test;
+
+import java.lang.reflect.Field;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import net.voldrich.webclient.test.dto.CommitReference;
+import net.voldrich.webclient.test.dto.GithubError;
+import net.voldrich.webclient.test.dto.Issue;
+import net.voldrich.webclient.test.dto.Label;
+import net.voldrich.webclient.test.dto.Permissions;
+import net.voldrich.webclient.test.dto.PullRequestLinks;
+import net.voldrich.webclient.test.dto.Repository;
+import net.voldrich.webclient.test.dto.User;
+import net.voldrich.webclient.test.dto.UserDetail;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Additional properties maps allocated per decoded DTO. The map is allocated lazily for the first unknown
+ * property, so responses with known properties only and lean decoding, which drops unknown properties,
+ * allocate none. Allocation is counted from the DTO fields, not from heap usage.
+ */
+public class DtoMemoryFootprintTest {
+
+    private static final int OBJECT_COUNT = 1000;
+
+    private static final List<Class<?>> DTO_CLASSES = Arrays.asList(CommitReference.class, GithubError.class,
+            Issue.class, Label.class, Permissions.class, PullRequestLinks.class, Repository.class, User.class,
+            UserDetail.class);
+
+    private static final String USER_DETAIL_JSON = "{\"login\":\"mavo\",\"id\":%d,"
+            + "\"avatar_url\":\"https://avatars.githubusercontent.com/u/%<d?v=4\","
+            + "\"url\":\"https://api.github.com/users/mavo\",\"type\":\"User\",\"site_admin\":false,"
+            + "\"name\":\"Martin Voldrich\",\"public_repos\":12,\"followers\":3,\"following\":1,"
+            + "\"created_at\":\"2011-01-26T19:01:12Z\",\"updated_at\":\"2020-10-01T10:11:12Z\","
+            + "\"node_id\":\"MDQ6VXNlcjU4MzIzMQ==\",\"twitter_username\":null}";
+
+    private static final String KNOWN_USER_DETAIL_JSON = "{\"login\":\"mavo\",\"id\":%d,"
+            + "\"avatar_url\":\"https://avatars.githubusercontent.com/u/%<d?v=4\","
+            + "\"url\":\"https://api.github.com/users/mavo\",\"type\":\"User\",\"site_admin\":false,"
+            + "\"name\":\"Martin Voldrich\",\"public_repos\":12,\"followers\":3,\"following\":1,"
+            + "\"created_at\":\"2011-01-26T19:01:12Z\",\"updated_at\":\"2020-10-01T10:11:12Z\"}";
+
+    private final GithubClientConfiguration config = new GithubClientConfiguration("owner", "repo", null, 0);
+
+    @Test
+    void testNoMapAllocatedEagerly() throws Exception {
+        for (Class<?> dtoClass : DTO_CLASSES) {
+            assertNull(additionalProperties(dtoClass.getConstructor().newInstance()), dtoClass.getSimpleName());
+        }
+    }
+
+    @Test
+    void testAdditionalPropertiesAllocation() throws Exception {
+        ObjectMapper objectMapper = GithubCodecs.createObjectMapper(config);
+        assertEquals(OBJECT_COUNT, allocatedMaps(objectMapper, USER_DETAIL_JSON));
+        assertEquals(0, allocatedMaps(objectMapper, KNOWN_USER_DETAIL_JSON));
+        assertEquals(0, allocatedMaps(GithubCodecs.createObjectMapper(config.withLeanDecoding(true)),
+                USER_DETAIL_JSON));
+    }
+
+    @Test
+    void testKnownPropertiesAllocateNoMap() throws Exception {
+        ObjectMapper objectMapper = GithubCodecs.createObjectMapper(config);
+
+        UserDetail known = objectMapper.readValue(String.format(KNOWN_USER_DETAIL_JSON, 1), UserDetail.class);
+        assertEquals("mavo", known.getLogin());
+        assertTrue(known.getAdditionalProperties().isEmpty());
+        // shared empty map is returned only while no map was allocated
+        assertSame(Collections.emptyMap(), known.getAdditionalProperties());
+        User knownUser = objectMapper.readValue("{\"login\":\"mavo\",\"id\":1}", User.class);
+        assertSame(Collections.emptyMap(), knownUser.getAdditionalProperties());
+
+        UserDetail unknown = objectMapper.readValue(String.format(USER_DETAIL_JSON, 1), UserDetail.class);
+        assertEquals("MDQ6VXNlcjU4MzIzMQ==", unknown.getAdditionalProperties().get("node_id"));
+    }
+
+    private static int allocatedMaps(ObjectMapper objectMapper, String json) throws Exception {
+        List<UserDetail> details = new ArrayList<>(OBJECT_COUNT);
+        for (int i = 0; i < OBJECT_COUNT; i++) {
+            details.add(objectMapper.readValue(String.format(json, i), UserDetail.class));
+        }
+        int allocated = 0;
+        for (UserDetail detail : details) {
+            if (additionalProperties(detail) != null) {
+                allocated++;
+            }
+        }
+        return allocated;
+    }
+
+    private static Object additionalProperties(Object dto) throws ReflectiveOperationException {
+        Field field = dto.getClass().getDeclaredField("additionalProperties");
+        field.setAccessible(true);
+        return field.get(dto);
+    }
+}
@@ -0,0 +1,139 @@
+package net.voldrich.webclient.test;
+
+import java.io.IOException;
+import java.time.Instant;
+import java.util.Date;
+import java.util.Random;
+
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.deser.DeserializationProblemHandler;
+import com.fasterxml.jackson.databind.exc.InvalidFormatException;
+import com.fasterxml.jackson.databind.exc.MismatchedInputException;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Parsing, formatting and Jackson codecs of {@link GithubDates} checked against java.time.
+ */
+public class GithubDatesTest {
+
+    private static final String[] DATES = {
+            "2011-01-26T19:01:12Z",
+            "1970-01-01T00:00:00Z",
+            "1969-12-31T23:59:59Z",
+            "2000-02-29T12:00:00Z",
+            "2020-02-29T23:59:59Z",
+            "2100-03-01T00:00:00Z",
+            "0001-01-01T00:00:00Z",
+            "9999-12-31T23:59:59Z",
+    };
+
+    private final ObjectMapper objectMapper = new ObjectMapper().registerModule(GithubDates.module());
+
+    @Test
+    void testRoundTrip() {
+        for (String date : DATES) {
+            long epochMillis = Instant.parse(date).toEpochMilli();
+            assertEquals(epochMillis, GithubDates.parseEpochMillis(date), date);
+            assertEquals(date, GithubDates.format(epochMillis));
+        }
+        Random random = new Random(42);
+        for (int i = 0; i < 10_000; i++) {
+            Instant instant = Instant.ofEpochSecond(random.nextInt(Integer.MAX_VALUE) * (random.nextBoolean() ? 1L : -1L));
+            String date = instant.toString();
+            assertEquals(date, GithubDates.format(instant.toEpochMilli()));
+            assertEquals(instant, GithubDates.parseInstant(date));
+        }
+    }
+
+    @Test
+    void testIsoFallback() {
+        assertEquals(Instant.parse("2011-01-26T18:01:12Z"), GithubDates.parseInstant("2011-01-26T19:01:12+01:00"));
+        assertEquals(Instant.parse("2011-01-26T19:01:12.500Z"), GithubDates.parseInstant("2011-01-26T19:01:12.5Z"));
+    }
+
+    @Test
+    void testInvalidDatesRejected() {
+        String[] invalid = {
+                "2020-02-30T00:00:00Z",
+                "2019-02-29T00:00:00Z",
+                "2100-02-29T00:00:00Z",
+                "2021-04-31T00:00:00Z",
+                "2021-13-01T00:00:00Z",
+                "2021-00-10T00:00:00Z",
+                "2021-01-00T00:00:00Z",
+                "2021-01-01T24:00:00Z",
+                "2021-01-01T00:60:00Z",
+                "2021-01-01T00:00:60Z",
+                "2021-0a-01T00:00:00Z",
+                "2020-02-31T00:00:00+01:00",
+                "yesterday",
+        };
+        for (String date : invalid) {
+            assertThrows(IllegalArgumentException.class, () -> GithubDates.parseEpochMillis(date), date);
+        }
+    }
+
+    @Test
+    void testCodecs() throws IOException {
+        Timestamps timestamps = objectMapper.readValue("{\"date\":\"2011-01-26T19:01:12Z\","
+                + "\"instant\":\"2011-01-26T19:01:12Z\",\"epochMillis\":\"2011-01-26T19:01:12Z\"}", Timestamps.class);
+        long expected = Instant.parse("2011-01-26T19:01:12Z").toEpochMilli();
+        assertEquals(expected, timestamps.date.getTime());
+        assertEquals(expected, timestamps.instant.toEpochMilli());
+        assertEquals(expected, timestamps.epochMillis);
+        assertEquals("{\"date\":\"2011-01-26T19:01:12Z\",\"instant\":\"2011-01-26T19:01:12Z\",\"epochMillis\":"
+                + expected + "}", objectMapper.writeValueAsString(timestamps));
+
+        Timestamps numeric = objectMapper.readValue("{\"date\":" + expected + ",\"instant\":" + expected
+                + ",\"epochMillis\":" + expected + "}", Timestamps.class);
+        assertEquals(expected, numeric.date.getTime());
+        assertEquals(expected, numeric.instant.toEpochMilli());
+        assertEquals(expected, numeric.epochMillis);
+    }
+
+    @Test
+    void testCodecsRejectInvalidValues() {
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"date\":\"2020-02-30T00:00:00Z\"}", Timestamps.class));
+        assertThrows(InvalidFormatException.class,
+                () -> objectMapper.readValue("{\"epochMillis\":\"2020-02-30T00:00:00Z\"}", Timestamps.class));
+        assertThrows(MismatchedInputException.class,
+                () -> objectMapper.readValue("{\"instant\":true}", Timestamps.class));
+        assertThrows(MismatchedInputException.class,
+                () -> objectMapper.readValue("{\"epochMillis\":[1]}", Timestamps.class));
+    }
+
+    @Test
+    void testProblemHandlerValue() throws IOException {
+        Date resolved = new Date(1000);
+        ObjectMapper lenient = new ObjectMapper().registerModule(GithubDates.module())
+                .addHandler(new DeserializationProblemHandler() {
+                    @Override
+                    public Object handleUnexpectedToken(DeserializationContext ctxt, Class<?> targetType, JsonToken t,
+                                                        JsonParser p, String failureMsg) {
+                        return targetType == Date.class ? resolved : NOT_HANDLED;
+                    }
+                });
+        assertEquals(resolved, lenient.readValue("{\"date\":true}", Timestamps.class).date);
+        assertThrows(MismatchedInputException.class,
+                () -> lenient.readValue("{\"instant\":true}", Timestamps.class));
+    }
+
+    public static class Timestamps {
+
+        public Date date;
+
+        public Instant instant;
+
+        @JsonDeserialize(using = GithubDates.EpochMillisDeserializer.class)
+        public long epochMillis;
+    }
+}
@@ -0,0 +1,78 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicReference;
+
+import org.junit.jupiter.api.Test;
+
+import com.codahale.metrics.MetricRegistry;
+import net.voldrich.webclient.test.GithubClient.Paging;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Clients sharing one metric registry and endpoint timers.
+ */
+public class GithubMetricsTest {
+
+    @Test
+    void testClientsShareRegistry() {
+        MetricRegistry registry = new MetricRegistry();
+        GithubClientConfiguration config = new GithubClientConfiguration("owner", "repo", "token", 0)
+                .withMetricRegistry(registry);
+        GithubClient first = new GithubClient(config);
+        GithubClient second = new GithubClient(config);
+        assertEquals("github", first.getMetrics().getPrefix());
+        assertEquals("github-1", second.getMetrics().getPrefix());
+        assertTrue(registry.getGauges().containsKey("github-1.requests.count"));
+        assertEquals(0L, registry.getGauges().get("github.paging.decisions.paralel_ordered").getValue());
+        first.getPagingAdvisor().choose(5, 100, 1, null, 0);
+        assertEquals(1L, registry.getGauges().get("github.paging.decisions.paralel_ordered").getValue());
+        assertEquals("PARALEL_ORDERED", registry.getGauges().get("github.paging.lastDecision").getValue());
+        assertEquals("no round trip statistics", registry.getGauges().get("github.paging.lastReason").getValue());
+
+        first.dispose();
+        assertTrue(registry.getNames().stream().noneMatch(name -> name.startsWith("github.")));
+        assertTrue(registry.getNames().stream().anyMatch(name -> name.startsWith("github-1.")));
+
+        GithubClient recreated = new GithubClient(config);
+        assertEquals("github", recreated.getMetrics().getPrefix());
+        second.dispose();
+        recreated.dispose();
+        assertTrue(registry.getNames().isEmpty());
+    }
+
+    @Test
+    void testEndpointTimersFollowUriTemplate() {
+        AtomicReference<String> baseUrl = new AtomicReference<>();
+        GithubStubServer server = new GithubStubServer(routes -> routes
+                .get("/repos/owner/repo/contributors", (request, response) -> response
+                        .header("Link", "<" + baseUrl.get() + "/repositories/1/contributors?page=2>; rel=\"next\"")
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.just("[{\"login\":\"first\"}]")))
+                .get("/repositories/{id}/contributors", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.just("[{\"login\":\"second\"}]")))
+                .get("/users/{login}", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.just("{\"login\":\"" + request.param("login") + "\"}"))));
+        baseUrl.set(server.getBaseUrl());
+        MetricRegistry registry = new MetricRegistry();
+        GithubClient client = new GithubClient(new GithubClientConfiguration("owner", "repo", "token", 0)
+                .withBaseUrl(server.getBaseUrl())
+                .withMetricRegistry(registry)
+                .withRequestLogging(false));
+        try {
+            client.loadContributorsPaged(Paging.RECURSIVE).blockLast(Duration.ofSeconds(10));
+            // page following the link is timed under the template of the first page
+            assertEquals(2, registry.timer("github.requests.repos.owner.repo.contributors").getCount());
+            assertEquals(2, registry.timer("github.requests.users.name").getCount());
+            assertEquals(0, registry.timer("github.requests.other").getCount());
+        } finally {
+            client.dispose();
+            server.stop();
+        }
+    }
+}
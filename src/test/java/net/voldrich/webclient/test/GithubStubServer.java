@@ -0,0 +1,48 @@
+package net.voldrich.webclient.test;
+
+import java.nio.charset.StandardCharsets;
+import java.util.Base64;
+import java.util.function.Consumer;
+
+import org.springframework.http.HttpHeaders;
+
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerRequest;
+import reactor.netty.http.server.HttpServerRoutes;
+
+/**
+ * Local stub of github API bound to a random port, shared by tests which check the tokens sent by the client.
+ */
+class GithubStubServer {
+
+    private final DisposableServer server;
+
+    GithubStubServer(Consumer<? super HttpServerRoutes> routes) {
+        this.server = HttpServer.create()
+                .port(0)
+                .route(routes)
+                .bindNow();
+    }
+
+    String getBaseUrl() {
+        return "http://localhost:" + server.port();
+    }
+
+    void stop() {
+        server.disposeNow();
+    }
+
+    /**
+     * Reverts basic authorization set by the client, returns empty string for a request without a token.
+     */
+    static String getToken(HttpServerRequest request) {
+        String authorization = request.requestHeaders().get(HttpHeaders.AUTHORIZATION);
+        if (authorization == null || !authorization.startsWith("Basic ")) {
+            return "";
+        }
+        String credentials = new String(Base64.getDecoder().decode(authorization.substring("Basic ".length())),
+                StandardCharsets.UTF_8);
+        return credentials.substring(credentials.indexOf(':') + 1);
+    }
+}
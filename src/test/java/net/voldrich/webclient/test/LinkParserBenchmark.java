@@ -0,0 +1,66 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Compares Jersey derived {@link Link#parseLinks(List)} with single pass {@link PageLinks#parse(List)}
+ * on a typical github paging header. Run the main method from test classpath, add
+ * {@code -prof gc} to JMH arguments to see allocation rate.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Benchmark)
+public class LinkParserBenchmark {
+
+    private final List<String> header = Collections.singletonList(
+            "<https://api.github.com/repositories/31533997/contributors?per_page=10&page=3>; rel=\"next\", "
+                    + "<https://api.github.com/repositories/31533997/contributors?per_page=10&page=10>; rel=\"last\", "
+                    + "<https://api.github.com/repositories/31533997/contributors?per_page=10&page=1>; rel=\"first\", "
+                    + "<https://api.github.com/repositories/31533997/contributors?per_page=10&page=1>; rel=\"prev\"");
+
+    @Benchmark
+    public URI jerseyNextLink() {
+        for (Link link : Link.parseLinks(header)) {
+            if (link.getRel().equalsIgnoreCase("next")) {
+                return link.getUri();
+            }
+        }
+        return null;
+    }
+
+    @Benchmark
+    public URI pageLinksNextLink() {
+        return PageLinks.parse(header).getNextUri();
+    }
+
+    @Benchmark
+    public boolean pageLinksHasNext() {
+        return PageLinks.parse(header).hasNext();
+    }
+
+    public static void main(String[] args) throws RunnerException {
+        new Runner(new OptionsBuilder()
+                .include(LinkParserBenchmark.class.getSimpleName())
+                .build())
+                .run();
+    }
+}
@@ -0,0 +1,107 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+import net.voldrich.webclient.test.GithubClient.Paging;
+import net.voldrich.webclient.test.dto.UserDetail;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parallel paging under a request rate limit against a local stub of github API which records arrival
+ * of every request.
+ */
+public class PacedPagingTest {
+
+    private static final int PAGES = 3;
+
+    private static final int PAGE_SIZE = 2;
+
+    private static final int RATE_PER_SECOND = 20;
+
+    private final List<Long> arrivals = Collections.synchronizedList(new ArrayList<>());
+
+    private DisposableServer server;
+
+    private GithubClient client;
+
+    @BeforeEach
+    void start() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/repos/owner/repo/contributors", (request, response) -> {
+                            arrivals.add(System.nanoTime());
+                            int page = Integer.parseInt(new QueryStringDecoder(request.uri()).parameters()
+                                    .getOrDefault("page", Collections.singletonList("1")).get(0));
+                            String pageUrl = "http://localhost:" + server.port()
+                                    + "/repos/owner/repo/contributors?per_page=" + PAGE_SIZE + "&page=";
+                            String links = (page < PAGES ? "<" + pageUrl + (page + 1) + ">; rel=\"next\", " : "")
+                                    + "<" + pageUrl + PAGES + ">; rel=\"last\"";
+                            String users = "[{\"login\":\"user-" + page + "-0\"},{\"login\":\"user-" + page + "-1\"}]";
+                            return response.header("Link", links)
+                                    .header("Content-Type", "application/json")
+                                    .sendString(Mono.just(users));
+                        })
+                        .get("/users/{login}", (request, response) -> {
+                            arrivals.add(System.nanoTime());
+                            return response.header("Content-Type", "application/json")
+                                    .sendString(Mono.just("{\"login\":\"" + request.param("login") + "\"}"));
+                        }))
+                .bindNow();
+        client = new GithubClient(new GithubClientConfiguration("owner", "repo", "token", RATE_PER_SECOND)
+                .withBaseUrl("http://localhost:" + server.port())
+                .withRequestLogging(false));
+    }
+
+    @AfterEach
+    void stop() {
+        client.dispose();
+        server.disposeNow();
+    }
+
+    @Test
+    void testParallelFlatMapPaced() {
+        URI uri = URI.create("http://localhost:" + server.port()
+                + "/repos/owner/repo/contributors?per_page=" + PAGE_SIZE);
+        List<String> logins = client.performPageableRequest(Paging.PARALEL_FLAT_MAP, uri, 100)
+                .map(UserDetail::getLogin)
+                .sort()
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        List<String> expected = new ArrayList<>();
+        for (int page = 1; page <= PAGES; page++) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                expected.add("user-" + page + "-" + i);
+            }
+        }
+        assertEquals(expected, logins);
+
+        List<Long> sorted = arrivals.stream().sorted().collect(Collectors.toList());
+        assertEquals(PAGES + PAGES * PAGE_SIZE, sorted.size());
+        long intervalNanos = TimeUnit.SECONDS.toNanos(1) / RATE_PER_SECOND;
+        // the first request takes longer than the following ones, it opens the first connection
+        long slackNanos = TimeUnit.MILLISECONDS.toNanos(40);
+        for (int i = 1; i < sorted.size(); i++) {
+            long elapsed = sorted.get(i) - sorted.get(0);
+            assertTrue(elapsed >= i * intervalNanos - slackNanos,
+                    "Request " + i + " arrived " + TimeUnit.NANOSECONDS.toMillis(elapsed) + " ms after the first");
+        }
+    }
+}
@@ -0,0 +1,44 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+
+import org.junit.jupiter.api.Test;
+
+import net.voldrich.webclient.test.GithubClient.Paging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Budget estimate of {@link PagingAdvisor} and page counts of links without page parameter.
+ */
+public class PagingAdvisorTest {
+
+    private static final long RESET = System.currentTimeMillis() / 1000 + 3600;
+
+    @Test
+    void testBudgetCoversDetailRequests() {
+        PagingAdvisor advisor = new PagingAdvisor();
+        RateLimitStatus status = new RateLimitStatus(5000, 100, RESET);
+        assertEquals(Paging.PARALEL_ORDERED, advisor.choose(5, 100, 1, status, 0));
+        // 5 pages of 30 contributors take 155 requests
+        assertEquals(Paging.RECURSIVE, advisor.choose(5, 100, 31, status, 0));
+        assertEquals("remaining rate limit 100 below 155 requests of 5 pages", advisor.getLastReason());
+        assertEquals(Paging.PARALEL_ORDERED, advisor.choose(5, 100, 31, new RateLimitStatus(5000, 155, RESET), 0));
+    }
+
+    @Test
+    void testPageCountWithoutPageParameterIgnored() {
+        PagingAdvisor advisor = new PagingAdvisor();
+        advisor.recordPageCount(-1);
+        assertEquals(-1, advisor.getPageCount());
+        advisor.recordPageCount(4);
+        advisor.recordPageCount(-1);
+        assertEquals(4, advisor.getPageCount());
+
+        PageCountStore store = new PageCountStore(16);
+        URI uri = URI.create("https://api.github.com/repos/owner/repo/contributors");
+        store.update(uri, "https://api.github.com/repositories/1/contributors?cursor=abc");
+        assertEquals(0, store.getPageCount(uri));
+        assertEquals(0, store.size());
+    }
+}
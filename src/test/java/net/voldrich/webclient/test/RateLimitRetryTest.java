@@ -0,0 +1,108 @@
+package net.voldrich.webclient.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+
+import net.voldrich.webclient.test.dto.UserDetail;
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Retries of requests rejected by rate limit against a local stub of github API. Client wide limits pause
+ * all requests of the client, exhausted token of the pool is replaced by another one without pause.
+ */
+public class RateLimitRetryTest {
+
+    private static final String EXHAUSTED = "exhausted";
+
+    private final AtomicInteger contributorRequests = new AtomicInteger();
+
+    private final List<String> contributorTokens = Collections.synchronizedList(new ArrayList<>());
+
+    private volatile boolean secondaryLimit;
+
+    private GithubStubServer server;
+
+    private GithubClient client;
+
+    @BeforeEach
+    void startServer() {
+        server = new GithubStubServer(routes -> routes
+                .get("/repos/owner/repo/contributors", (request, response) -> {
+                    String token = GithubStubServer.getToken(request);
+                    contributorTokens.add(token);
+                    if (contributorRequests.incrementAndGet() == 1 && secondaryLimit) {
+                        return response.status(429)
+                                .header(HttpHeaders.RETRY_AFTER, "1")
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"message\":\"secondary rate limit\"}"));
+                    }
+                    if (token.equals(EXHAUSTED)) {
+                        return response.status(403)
+                                .header(RateLimitStatus.LIMIT_HEADER, "5000")
+                                .header(RateLimitStatus.REMAINING_HEADER, "0")
+                                .header(RateLimitStatus.RESET_HEADER,
+                                        String.valueOf(System.currentTimeMillis() / 1000 + 3600))
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"message\":\"API rate limit exceeded\"}"));
+                    }
+                    return response.header("Content-Type", "application/json")
+                            .sendString(Mono.just("[{\"login\":\"first\"},{\"login\":\"second\"}]"));
+                })
+                .get("/users/{login}", (request, response) -> response
+                        .header("Content-Type", "application/json")
+                        .sendString(Mono.just("{\"login\":\"" + request.param("login") + "\"}"))));
+    }
+
+    @AfterEach
+    void stop() {
+        if (client != null) {
+            client.dispose();
+        }
+        server.stop();
+    }
+
+    private List<String> loadLogins() {
+        return client.loadContributorSinglePage()
+                .map(UserDetail::getLogin)
+                .sort()
+                .collect(Collectors.toList())
+                .block();
+    }
+
+    @Test
+    void testSecondaryLimitPausesClient() {
+        secondaryLimit = true;
+        client = new GithubClient(new GithubClientConfiguration("owner", "repo", "token", 0)
+                .withBaseUrl(server.getBaseUrl()));
+        long start = System.nanoTime();
+        assertEquals(Arrays.asList("first", "second"), loadLogins());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(2, contributorRequests.get());
+        assertTrue(elapsedMillis >= 1000, "Retried after " + elapsedMillis + " ms");
+    }
+
+    @Test
+    void testExhaustedTokenReplacedWithoutPause() {
+        client = new GithubClient(new GithubClientConfiguration("owner", "repo", "token", 0)
+                .withBaseUrl(server.getBaseUrl())
+                .withAccessTokens(EXHAUSTED, "spare"));
+        long start = System.nanoTime();
+        assertEquals(Arrays.asList("first", "second"), loadLogins());
+        long elapsedMillis = TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - start);
+        assertEquals(Arrays.asList(EXHAUSTED, "spare"), contributorTokens);
+        assertTrue(elapsedMillis < 1000, "Retried after " + elapsedMillis + " ms");
+    }
+}
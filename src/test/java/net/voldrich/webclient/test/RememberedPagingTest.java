@@ -0,0 +1,182 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+import net.voldrich.webclient.test.GithubClient.Paging;
+import net.voldrich.webclient.test.dto.UserDetail;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyOutbound;
+import reactor.netty.http.server.HttpServer;
+import reactor.netty.http.server.HttpServerResponse;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Parallel paging with remembered page count against a local stub of github API whose page count and
+ * page links change between crawls.
+ */
+public class RememberedPagingTest {
+
+    private static final int MAX_CONNECTIONS = 4;
+
+    private volatile int pages;
+
+    private volatile String pagePath;
+
+    private volatile boolean failFirstPage;
+
+    private final AtomicInteger pageRequests = new AtomicInteger();
+
+    private final List<Throwable> droppedErrors = Collections.synchronizedList(new ArrayList<>());
+
+    private DisposableServer server;
+
+    private GithubClient client;
+
+    @BeforeEach
+    void start() {
+        Hooks.onErrorDropped(droppedErrors::add);
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/repos/owner/repo/contributors", (request, response) -> {
+                            pageRequests.incrementAndGet();
+                            if (failFirstPage) {
+                                return response.status(500)
+                                        .header("Content-Type", "application/json")
+                                        .sendString(Mono.just("{\"message\":\"failure\"}")
+                                                .delayElement(Duration.ofMillis(300)));
+                            }
+                            return sendPage(response, 1);
+                        })
+                        .get("/repositories/{id}/contributors", (request, response) -> {
+                            pageRequests.incrementAndGet();
+                            int page = Integer.parseInt(new QueryStringDecoder(request.uri()).parameters()
+                                    .getOrDefault("page", Collections.singletonList("1")).get(0));
+                            return sendPage(response, page);
+                        })
+                        .get("/users/{login}", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"login\":\"" + request.param("login") + "\"}"))))
+                .bindNow();
+        client = new GithubClient(new GithubClientConfiguration("owner", "repo", "token", 0)
+                .withBaseUrl("http://localhost:" + server.port())
+                .withPageCountStore(16)
+                .withRequestLogging(false)
+                .withConnectionPool(MAX_CONNECTIONS, -1, Duration.ofSeconds(2), Duration.ofSeconds(30)));
+    }
+
+    @AfterEach
+    void stop() {
+        client.dispose();
+        server.disposeNow();
+        Hooks.resetOnErrorDropped();
+    }
+
+    private NettyOutbound sendPage(HttpServerResponse response, int page) {
+        String pageUrl = "http://localhost:" + server.port() + pagePath + "?per_page=100&page=";
+        String links = (page < pages ? "<" + pageUrl + (page + 1) + ">; rel=\"next\", " : "")
+                + (pages > 1 ? "<" + pageUrl + pages + ">; rel=\"last\"" : "");
+        if (!links.isEmpty()) {
+            response.header("Link", links);
+        }
+        return response.header("Content-Type", "application/json")
+                .sendString(Mono.just("[{\"login\":\"user-" + page + "\"}]"));
+    }
+
+    private List<String> crawl(Paging paging) {
+        URI uri = URI.create("http://localhost:" + server.port() + "/repos/owner/repo/contributors?per_page=100");
+        return client.performPageableRequest(paging, uri, 100)
+                .map(UserDetail::getLogin)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+    }
+
+    private static List<String> expectedLogins(int pages) {
+        List<String> logins = new ArrayList<>();
+        for (int page = 1; page <= pages; page++) {
+            logins.add("user-" + page);
+        }
+        return logins;
+    }
+
+    private static List<String> sorted(Paging paging, List<String> logins) {
+        return paging == Paging.PARALEL_FLAT_MAP ? logins.stream().sorted().collect(Collectors.toList()) : logins;
+    }
+
+    private void remember(Paging paging, int rememberedPages, String path) {
+        pages = rememberedPages;
+        pagePath = path;
+        assertEquals(expectedLogins(rememberedPages), sorted(paging, crawl(paging)));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Paging.class, names = {"PARALEL_FLAT_MAP", "PARALEL_CONCAT_MAP", "PARALEL_ORDERED"})
+    void testOvershootPagesReleased(Paging paging) {
+        remember(paging, 6, "/repositories/1/contributors");
+        pages = 3;
+        for (int i = 0; i < 3; i++) {
+            assertEquals(expectedLogins(3), sorted(paging, crawl(paging)));
+            pages = 6;
+            crawl(paging);
+            pages = 3;
+        }
+        assertEquals(9, client.getPageCountStore().getDroppedPageCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Paging.class, names = {"PARALEL_FLAT_MAP", "PARALEL_CONCAT_MAP", "PARALEL_ORDERED"})
+    void testPageLinkChanged(Paging paging) {
+        remember(paging, 4, "/repositories/1/contributors");
+        pagePath = "/repositories/2/contributors";
+        assertEquals(expectedLogins(4), sorted(paging, crawl(paging)));
+        assertEquals(3, client.getPageCountStore().getDroppedPageCount());
+        pageRequests.set(0);
+        assertEquals(expectedLogins(4), sorted(paging, crawl(paging)));
+        assertEquals(4, pageRequests.get());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Paging.class, names = {"PARALEL_FLAT_MAP", "PARALEL_CONCAT_MAP", "PARALEL_ORDERED"})
+    void testMorePagesThanRemembered(Paging paging) {
+        remember(paging, 3, "/repositories/1/contributors");
+        pages = 7;
+        pageRequests.set(0);
+        assertEquals(expectedLogins(7), sorted(paging, crawl(paging)));
+        assertEquals(7, pageRequests.get());
+        assertEquals(0, client.getPageCountStore().getDroppedPageCount());
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Paging.class, names = {"PARALEL_FLAT_MAP", "PARALEL_CONCAT_MAP", "PARALEL_ORDERED"})
+    void testFirstPageErrorReleasesExpectedPages(Paging paging) {
+        remember(paging, MAX_CONNECTIONS + 1, "/repositories/1/contributors");
+        failFirstPage = true;
+        for (int i = 0; i < 3; i++) {
+            assertThrows(GithubClientException.class, () -> crawl(paging));
+        }
+        // expected pages answered before the delayed first page failure are released
+        long dropped = client.getPageCountStore().getDroppedPageCount();
+        assertTrue(dropped >= 3, "Expected released pages, dropped " + dropped);
+        failFirstPage = false;
+        assertEquals(expectedLogins(MAX_CONNECTIONS + 1), sorted(paging, crawl(paging)));
+        // failure of the first page is signalled once, not by every branch waiting for it
+        assertEquals(Collections.emptyList(), droppedErrors);
+    }
+}
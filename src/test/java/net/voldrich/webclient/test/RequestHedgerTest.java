@@ -0,0 +1,110 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Operators;
+import reactor.core.scheduler.Schedulers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Hedge delay derived from response times of the original requests, cancellation of the slower request
+ * and release of responses which arrived too late to win.
+ */
+public class RequestHedgerTest {
+
+    private static final String ORIGINAL = "original";
+
+    private static final String HEDGE = "hedge";
+
+    private final RequestHedger hedger = new RequestHedger(50, 1.0);
+
+    private final AtomicInteger emitted = new AtomicInteger();
+
+    private final AtomicInteger cancelledOriginals = new AtomicInteger();
+
+    private final AtomicInteger discarded = new AtomicInteger();
+
+    @BeforeEach
+    void warmUp() throws InterruptedException {
+        // no hedging until the first window is complete
+        round(TimeUnit.MILLISECONDS.toNanos(50), 0);
+        assertEquals(0, hedger.getHedgeCount());
+        Thread.sleep(RequestHedger.UPDATE_INTERVAL.toMillis() + 100);
+        long delay = getHedgeDelayMillis();
+        assertTrue(delay >= 50 && delay < 300, "Unexpected delay " + delay + " ms");
+        emitted.set(0);
+    }
+
+    private List<String> round(long originalNanos, long hedgeNanos) {
+        return Flux.range(0, RequestHedger.MIN_SAMPLES)
+                .flatMap(i -> hedger.hedge(
+                        Mono.delay(Duration.ofNanos(originalNanos))
+                                .map(tick -> emit(ORIGINAL))
+                                .doOnCancel(cancelledOriginals::incrementAndGet),
+                        Mono.delay(Duration.ofNanos(hedgeNanos)).map(tick -> emit(HEDGE)),
+                        value -> discarded.incrementAndGet()))
+                .collectList()
+                .block();
+    }
+
+    private String emit(String value) {
+        emitted.incrementAndGet();
+        return value;
+    }
+
+    private long getHedgeDelayMillis() {
+        return TimeUnit.NANOSECONDS.toMillis(hedger.getHedgeDelayNanos());
+    }
+
+    @Test
+    void testSlowOriginalCancelled() {
+        long delay = getHedgeDelayMillis();
+        List<String> responses = round(TimeUnit.MILLISECONDS.toNanos(400), TimeUnit.MILLISECONDS.toNanos(10));
+        assertEquals(RequestHedger.MIN_SAMPLES, responses.stream().filter(HEDGE::equals).count());
+        assertEquals(RequestHedger.MIN_SAMPLES, hedger.getHedgeWinCount());
+        assertEquals(RequestHedger.MIN_SAMPLES, cancelledOriginals.get());
+        assertEquals(RequestHedger.MIN_SAMPLES, emitted.get());
+        assertEquals(0, discarded.get());
+        assertTrue(getHedgeDelayMillis() >= delay, "Delay lowered to " + getHedgeDelayMillis() + " ms");
+    }
+
+    @Test
+    void testWinningOriginalNotDiscarded() {
+        List<String> responses = round(TimeUnit.MILLISECONDS.toNanos(80), TimeUnit.SECONDS.toNanos(1));
+        assertEquals(RequestHedger.MIN_SAMPLES, responses.stream().filter(ORIGINAL::equals).count());
+        assertEquals(0, hedger.getHedgeWinCount());
+        assertEquals(0, discarded.get());
+    }
+
+    @Test
+    void testLateResponsesDiscarded() throws InterruptedException {
+        // originals respond even after being cancelled, like a connection which already received the response
+        List<String> responses = Flux.range(0, RequestHedger.MIN_SAMPLES)
+                .flatMap(i -> hedger.hedge(
+                        Mono.<String>from(subscriber -> {
+                            subscriber.onSubscribe(Operators.emptySubscription());
+                            Schedulers.parallel().schedule(() -> {
+                                subscriber.onNext(emit(ORIGINAL));
+                                subscriber.onComplete();
+                            }, 300, TimeUnit.MILLISECONDS);
+                        }),
+                        Mono.delay(Duration.ofMillis(10)).map(tick -> emit(HEDGE)),
+                        value -> discarded.incrementAndGet()))
+                .collectList()
+                .block();
+        assertEquals(RequestHedger.MIN_SAMPLES, responses.stream().filter(HEDGE::equals).count());
+        Thread.sleep(500);
+        assertEquals(RequestHedger.MIN_SAMPLES, discarded.get());
+        assertEquals(emitted.get(), responses.size() + discarded.get());
+    }
+}
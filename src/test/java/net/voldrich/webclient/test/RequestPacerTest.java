@@ -0,0 +1,110 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Permit reservations of {@link RateLimiter} and of {@link RequestPacer} built on it.
+ */
+public class RequestPacerTest {
+
+    private long start;
+
+    @BeforeEach
+    void recordStart() {
+        start = System.nanoTime();
+    }
+
+    /**
+     * Permit is expected given time after the limiter was created, time spent by the test is subtracted from the wait.
+     */
+    private void assertPermitAt(long expectedNanos, long waitNanos) {
+        long minimalWait = expectedNanos - (System.nanoTime() - start);
+        assertTrue(waitNanos <= expectedNanos && waitNanos >= minimalWait,
+                "Expected wait between " + minimalWait + " and " + expectedNanos + " ns, was " + waitNanos + " ns");
+    }
+
+    private static long millis(long millis) {
+        return TimeUnit.MILLISECONDS.toNanos(millis);
+    }
+
+    @Test
+    void testBurst() {
+        RateLimiter rateLimiter = new RateLimiter(3, Duration.ofMillis(100));
+        assertTrue(rateLimiter.tryAcquire());
+        assertEquals(0, rateLimiter.reserve());
+        assertEquals(0, rateLimiter.reserve());
+        assertPermitAt(millis(100), rateLimiter.reserve());
+        assertPermitAt(millis(200), rateLimiter.reserve());
+    }
+
+    @Test
+    void testPause() {
+        RateLimiter rateLimiter = new RateLimiter(3, Duration.ofMillis(100));
+        rateLimiter.pauseFor(millis(500));
+        assertPermitAt(millis(500), rateLimiter.reserve());
+        assertPermitAt(millis(600), rateLimiter.reserve());
+    }
+
+    @Test
+    void testConcurrentSubscribersKeepRate() {
+        int subscribers = 200;
+        int capacity = 10;
+        Duration refill = Duration.ofMillis(2);
+        RateLimiter rateLimiter = new RateLimiter(capacity, refill);
+        List<Long> permitTimes = Flux.range(0, subscribers)
+                .flatMap(i -> rateLimiter.limitRate(Mono.fromCallable(System::nanoTime))
+                        .subscribeOn(Schedulers.parallel()), subscribers)
+                .collectList()
+                .block();
+        Collections.sort(permitTimes);
+        // after the burst every permit waits for its own refill
+        for (int i = capacity; i < subscribers; i++) {
+            long earliest = start + (i - capacity + 1) * refill.toNanos();
+            assertTrue(permitTimes.get(i) >= earliest,
+                    "Permit " + i + " granted " + (earliest - permitTimes.get(i)) + " ns early");
+        }
+    }
+
+    @Test
+    void testPacer() {
+        RequestPacer pacer = new RequestPacer(10);
+        assertEquals(0, pacer.reserve());
+        assertPermitAt(millis(100), pacer.reserve());
+        assertPermitAt(millis(200), pacer.reserve());
+    }
+
+    @Test
+    void testUnlimitedPacerPause() {
+        RequestPacer pacer = new RequestPacer(0);
+        assertEquals(0, pacer.reserve());
+        assertEquals(0, pacer.reserve());
+        pacer.pauseFor(millis(300));
+        assertPermitAt(millis(300), pacer.reserve());
+        assertPermitAt(millis(300), pacer.reserve());
+    }
+
+    @Test
+    void testAdaptivePacer() {
+        RequestPacer pacer = new RequestPacer(0);
+        long resetEpochSeconds = TimeUnit.MILLISECONDS.toSeconds(System.currentTimeMillis()) + 11;
+        pacer.adapt(new RateLimitStatus(5000, 50, resetEpochSeconds));
+        long interval = pacer.getIntervalNanos();
+        assertTrue(interval > millis(180) && interval <= millis(220), "Unexpected interval " + interval);
+        start = System.nanoTime();
+        assertEquals(0, pacer.reserve());
+        assertPermitAt(interval, pacer.reserve());
+    }
+}
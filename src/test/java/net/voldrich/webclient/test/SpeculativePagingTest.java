@@ -0,0 +1,113 @@
+package net.voldrich.webclient.test;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+
+import io.netty.handler.codec.http.QueryStringDecoder;
+import net.voldrich.webclient.test.GithubClient.Paging;
+import net.voldrich.webclient.test.dto.UserDetail;
+import reactor.core.publisher.Hooks;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+
+/**
+ * Sequential paging with speculative page requests against a local stub of github API whose pages past
+ * the last one fail.
+ */
+public class SpeculativePagingTest {
+
+    private static final int PAGES = 3;
+
+    private volatile int failingPage;
+
+    private final List<Throwable> droppedErrors = Collections.synchronizedList(new ArrayList<>());
+
+    private DisposableServer server;
+
+    private GithubClient client;
+
+    @BeforeEach
+    void start() {
+        Hooks.onErrorDropped(droppedErrors::add);
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/repos/owner/repo/contributors", (request, response) -> {
+                            int page = Integer.parseInt(new QueryStringDecoder(request.uri()).parameters()
+                                    .getOrDefault("page", Collections.singletonList("1")).get(0));
+                            if (page > PAGES) {
+                                return response.status(page % 2 == 0 ? 404 : 500)
+                                        .header("Content-Type", "application/json")
+                                        .sendString(Mono.just("{\"message\":\"Not Found\"}"));
+                            }
+                            if (page == failingPage) {
+                                return response.status(500)
+                                        .header("Content-Type", "application/json")
+                                        .sendString(Mono.just("{\"message\":\"failure\"}"));
+                            }
+                            String pageUrl = "http://localhost:" + server.port()
+                                    + "/repos/owner/repo/contributors?per_page=1&page=";
+                            String links = (page < PAGES ? "<" + pageUrl + (page + 1) + ">; rel=\"next\", " : "")
+                                    + "<" + pageUrl + PAGES + ">; rel=\"last\"";
+                            // the last page responds after the failures of the pages past it
+                            return response.header("Link", links)
+                                    .header("Content-Type", "application/json")
+                                    .sendString(Mono.just("[{\"login\":\"user-" + page + "\"}]")
+                                            .delayElement(Duration.ofMillis(page == PAGES ? 200 : 0)));
+                        })
+                        .get("/users/{login}", (request, response) -> response
+                                .header("Content-Type", "application/json")
+                                .sendString(Mono.just("{\"login\":\"" + request.param("login") + "\"}"))))
+                .bindNow();
+        client = new GithubClient(new GithubClientConfiguration("owner", "repo", "token", 0)
+                .withBaseUrl("http://localhost:" + server.port())
+                .withSpeculativePages(3)
+                .withRequestLogging(false));
+    }
+
+    @AfterEach
+    void stop() {
+        client.dispose();
+        server.disposeNow();
+        Hooks.resetOnErrorDropped();
+    }
+
+    private List<String> crawl(Paging paging) {
+        URI uri = URI.create("http://localhost:" + server.port() + "/repos/owner/repo/contributors?per_page=1");
+        return client.performPageableRequest(paging, uri, 100)
+                .map(UserDetail::getLogin)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Paging.class, names = {"RECURSIVE", "EXPAND"})
+    void testFailedPagesPastLastPageIgnored(Paging paging) {
+        List<String> expected = new ArrayList<>();
+        for (int page = 1; page <= PAGES; page++) {
+            expected.add("user-" + page);
+        }
+        assertEquals(expected, crawl(paging).stream().sorted().collect(Collectors.toList()));
+        assertEquals(Collections.emptyList(), droppedErrors);
+    }
+
+    @ParameterizedTest
+    @EnumSource(value = Paging.class, names = {"RECURSIVE", "EXPAND"})
+    void testFailedPageBeforeLastPageFailsCrawl(Paging paging) {
+        failingPage = 2;
+        assertThrows(GithubClientException.class, () -> crawl(paging));
+    }
+}
@@ -0,0 +1,145 @@
+package net.voldrich.webclient.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.web.reactive.function.client.WebClient;
+
+import reactor.core.publisher.Mono;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Token selection, parking of exhausted tokens and their recovery after reset against a local stub
+ * of github API which reports rate limit budget of every token.
+ */
+public class TokenPoolTest {
+
+    private static final long LIMIT = 5000;
+
+    private static final String EXHAUSTED = "exhausted";
+
+    private static final String SPARE = "spare";
+
+    /**
+     * Budget of a token reported by the stub, remaining budget is refilled once its reset passes.
+     */
+    private final Map<String, long[]> budgets = new ConcurrentHashMap<>();
+
+    private final List<String> usedTokens = Collections.synchronizedList(new ArrayList<>());
+
+    private GithubStubServer server;
+
+    private WebClient client;
+
+    private TokenPool tokenPool;
+
+    @BeforeEach
+    void start() {
+server = new GithubStubServer(routes -> routes
+                .get("/users/{login}", (request, response) -> {
+                    String token = GithubStubServer.getToken(request);
+                    usedTokens.add(token);
+                    long[] budget = budgets.get(token);
+                    long remaining;
+                    long reset;
+                    synchronized (budget) {
+                        if (System.currentTimeMillis() >= budget[1] * 1000) {
+                            budget[0] = LIMIT;
+                            budget[1] = budget[1] + 3600;
+                        }
+                        budget[0] = Math.max(0, budget[0] - 1);
+                        remaining = budget[0];
+                        reset = budget[1];
+                    }
+                    return response
+                            .header(RateLimitStatus.LIMIT_HEADER, String.valueOf(LIMIT))
+                            .header(RateLimitStatus.REMAINING_HEADER, String.valueOf(remaining))
+                            .header(RateLimitStatus.RESET_HEADER, String.valueOf(reset))
+                            .header("Content-Type", "application/json")
+                            .sendString(Mono.just("{\"login\":\"" + request.param("login") + "\"}"));
+                        }));
+        tokenPool = new TokenPool(Arrays.asList(EXHAUSTED, SPARE));
+        client = WebClient.builder()
+                .baseUrl(server.getBaseUrl())
+                .filter(tokenPool.filter())
+                .build();
+    }
+
+    @AfterEach
+    void stop() {
+        server.stop();
+    }
+
+    private void setBudget(String token, long remaining, long resetEpochSeconds) {
+        budgets.put(token, new long[]{remaining, resetEpochSeconds});
+    }
+
+    private void request() {
+        client.get().uri("/users/octocat").retrieve().bodyToMono(String.class).block();
+    }
+
+    private static long resetInSeconds(long seconds) {
+        return System.currentTimeMillis() / 1000 + seconds;
+    }
+
+    private static void sleepUntil(long epochMillis) throws InterruptedException {
+        long millis = epochMillis - System.currentTimeMillis();
+        if (millis > 0) {
+            Thread.sleep(millis);
+        }
+    }
+
+    @Test
+    void testExhaustedTokenParkedUntilReset() throws InterruptedException {
+        long reset = resetInSeconds(2);
+        setBudget(EXHAUSTED, 1, reset);
+        setBudget(SPARE, 100, resetInSeconds(3600));
+
+        // both budgets are unknown before the first response, first token is used and reports exhaustion
+        request();
+        assertEquals(Collections.singletonList(EXHAUSTED), usedTokens);
+        assertEquals(0, tokenPool.getTokens().get(0).getRemaining());
+
+        usedTokens.clear();
+        for (int i = 0; i < 5; i++) {
+            request();
+        }
+        assertEquals(Collections.nCopies(5, SPARE), usedTokens);
+        assertEquals(95, tokenPool.getTokens().get(1).getRemaining());
+
+        // after reset the refilled token has the most remaining budget
+        sleepUntil(reset * 1000 + 100);
+        usedTokens.clear();
+        request();
+        assertEquals(Collections.singletonList(EXHAUSTED), usedTokens);
+        assertEquals(LIMIT - 1, tokenPool.getTokens().get(0).getRemaining());
+    }
+
+    @Test
+    void testAllTokensExhaustedWaitForEarliestReset() {
+        long reset = resetInSeconds(2);
+        setBudget(EXHAUSTED, 1, reset);
+        setBudget(SPARE, 1, resetInSeconds(3600));
+        request();
+        request();
+        assertEquals(Arrays.asList(EXHAUSTED, SPARE), usedTokens);
+        RateLimitStatus status = tokenPool.getStatus();
+        assertEquals(2 * LIMIT, status.getLimit());
+        assertEquals(0, status.getRemaining());
+
+        usedTokens.clear();
+        request();
+        long now = System.currentTimeMillis();
+        assertTrue(now >= reset * 1000, "Request sent " + (reset * 1000 - now) + " ms before reset");
+        assertEquals(Collections.singletonList(EXHAUSTED), usedTokens);
+    }
+}
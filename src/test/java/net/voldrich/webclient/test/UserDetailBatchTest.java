@@ -0,0 +1,147 @@
+package net.voldrich.webclient.test;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import io.netty.handler.codec.http.QueryStringDecoder;
+import net.voldrich.webclient.test.dto.UserDetail;
+import reactor.core.publisher.Mono;
+import reactor.netty.DisposableServer;
+import reactor.netty.http.server.HttpServer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * User details of paged contributors resolved by GraphQL batches against a local stub of github API.
+ */
+public class UserDetailBatchTest {
+
+    private static final int PAGES = 3;
+
+    private static final int PAGE_SIZE = GithubClient.DEFAULT_PAGE_SIZE;
+
+    private static final String UNKNOWN_USER = "user-1-3";
+
+    private static final long REST_REMAINING = 4000;
+
+    private static final long RESET = System.currentTimeMillis() / 1000 + 3600;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final AtomicInteger graphQlRequests = new AtomicInteger();
+
+    private final AtomicInteger userDetailRequests = new AtomicInteger();
+
+    private DisposableServer server;
+
+    private GithubClient client;
+
+    @BeforeEach
+    void startServer() {
+        server = HttpServer.create()
+                .port(0)
+                .route(routes -> routes
+                        .get("/repos/owner/repo/contributors", (request, response) -> {
+                            int page = Integer.parseInt(new QueryStringDecoder(request.uri()).parameters()
+                                    .getOrDefault("page", Collections.singletonList("1")).get(0));
+                            String pageUrl = "http://localhost:" + server.port()
+                                    + "/repos/owner/repo/contributors?per_page=" + PAGE_SIZE + "&page=";
+                            String links = (page < PAGES ? "<" + pageUrl + (page + 1) + ">; rel=\"next\", " : "")
+                                    + "<" + pageUrl + PAGES + ">; rel=\"last\"";
+                            String users = IntStream.range(0, PAGE_SIZE)
+                                    .mapToObj(i -> "{\"login\":\"user-" + page + "-" + i + "\"}")
+                                    .collect(Collectors.joining(",", "[", "]"));
+                            return response.header("Link", links)
+                                    .header(RateLimitStatus.LIMIT_HEADER, "5000")
+                                    .header(RateLimitStatus.REMAINING_HEADER, String.valueOf(REST_REMAINING))
+                                    .header(RateLimitStatus.RESET_HEADER, String.valueOf(RESET))
+                                    .header(RateLimitStatus.RESOURCE_HEADER, "core")
+                                    .header("Content-Type", "application/json")
+                                    .sendString(Mono.just(users));
+                        })
+                        .get("/users/{login}", (request, response) -> {
+                            userDetailRequests.incrementAndGet();
+                            return response.status(404).send();
+                        })
+                        .post("/graphql", (request, response) -> response
+                                .header(RateLimitStatus.LIMIT_HEADER, "5000")
+                                .header(RateLimitStatus.REMAINING_HEADER, "1")
+                                .header(RateLimitStatus.RESET_HEADER, String.valueOf(RESET))
+                                .header(RateLimitStatus.RESOURCE_HEADER, "graphql")
+                                .header("Content-Type", "application/json")
+                                .sendString(request.receive().aggregate().asString().map(this::resolveUsers))))
+                .bindNow();
+    }
+
+    @AfterEach
+    void stopServer() {
+        if (client != null) {
+            client.dispose();
+        }
+        server.disposeNow();
+    }
+
+    private String resolveUsers(String body) {
+        graphQlRequests.incrementAndGet();
+        try {
+            JsonNode variables = objectMapper.readTree(body).get("variables");
+            ObjectNode data = objectMapper.createObjectNode();
+            for (int i = 0; i < variables.size(); i++) {
+                String login = variables.get("l" + i).asText();
+                if (login.equals(UNKNOWN_USER)) {
+                    data.putNull("u" + i);
+                    continue;
+                }
+                ObjectNode user = data.putObject("u" + i);
+                user.put("login", login);
+                user.put("databaseId", login.hashCode());
+                user.put("createdAt", "2011-01-26T19:01:12Z");
+                user.putObject("followers").put("totalCount", 3);
+            }
+            ObjectNode response = objectMapper.createObjectNode();
+            response.set("data", data);
+            return objectMapper.writeValueAsString(response);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    @Test
+    void testBatchedUserDetails() {
+        GithubClientConfiguration config = new GithubClientConfiguration("owner", "repo", "token", 0)
+                .withBaseUrl("http://localhost:" + server.port())
+                .withUserDetailBatch(25, Duration.ofMillis(50));
+        client = new GithubClient(config);
+        List<UserDetail> details = client
+                .loadContributorsPaged(GithubClient.Paging.PARALEL_ORDERED)
+                .collectList()
+                .block(Duration.ofSeconds(10));
+
+        List<String> expectedLogins = new ArrayList<>();
+        for (int page = 1; page <= PAGES; page++) {
+            for (int i = 0; i < PAGE_SIZE; i++) {
+                expectedLogins.add("user-" + page + "-" + i);
+            }
+        }
+        expectedLogins.remove(UNKNOWN_USER);
+        assertEquals(expectedLogins, details.stream().map(UserDetail::getLogin).collect(Collectors.toList()));
+        assertEquals(Integer.valueOf(3), details.get(0).getFollowers());
+        assertEquals(0, userDetailRequests.get());
+        assertTrue(graphQlRequests.get() <= 3, "Expected at most 3 GraphQL requests, was " + graphQlRequests);
+        // GraphQL points budget does not replace the REST budget
+        assertEquals(REST_REMAINING, client.getPagingAdvisor().getLastStatus().getRemaining());
+    }
+}